@@ -0,0 +1,363 @@
+JWT Refresh Tokens — Renew Without BCrypt
+
+In `6_JWT_Auth` the only way to get a token is `POST /auth/login`:
+
+```java
+authManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));  // 🐢 BCrypt
+```
+
+and `JwtUtil.generateToken` gives a fixed **1 hour** token.
+So every client sends its password again and burns a BCrypt round every hour. 😓
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ Short access tokens (default **15 min**, configurable)
+2. ✅ Long-lived **opaque** refresh tokens (random string, not a JWT)
+3. ✅ `POST /auth/refresh` → new access token + **new** refresh token (rotation)
+4. ✅ Stored as SHA-256 hash in a small indexed table → renewal = 1 indexed lookup
+5. ✅ Reuse detection: an old refresh token used twice → the whole chain is revoked
+6. ✅ `POST /auth/logout` and a cleanup job for expired rows
+
+| Step             | Cost                                    |
+| ---------------- | --------------------------------------- |
+| `/auth/login`    | BCrypt (once per device / session)      |
+| `/auth/refresh`  | SHA-256 + indexed lookup, **no BCrypt** |
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+jwt.access-token-ttl=15m
+jwt.refresh-token-ttl=14d
+```
+
+---
+
+## 🧱 2. `RefreshToken` Entity
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "ux_refresh_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "ix_refresh_token_expires", columnList = "expiresAt")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 43)   // Base64url(SHA-256) → always 43 chars
+    private String tokenHash;
+
+    @Column(nullable = false, length = 36)   // all rotations of one login share a family
+    private String family;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private boolean revoked;
+
+    // Getters and Setters
+}
+```
+
+> We **never** store the token itself. A leaked DB dump can't be used to refresh. 🔒
+
+---
+
+## 📦 3. `RefreshTokenRepository`
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Only ONE concurrent request can flip revoked false → true (returns 1 for the winner)
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.id = :id and t.revoked = false")
+    int revokeIfActive(Long id);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.family = :family")
+    int revokeFamily(String family);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
+```
+
+---
+
+## 🔁 4. `RefreshTokenService`
+
+```java
+package com.example.demo.service;
+
+import com.example.demo.model.RefreshToken;
+import com.example.demo.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    @Autowired
+    private RefreshTokenRepository repo;
+
+    @Value("${jwt.refresh-token-ttl:14d}")
+    private Duration ttl;
+
+    /** Result of a successful rotation: who it belongs to + the new opaque token. */
+    public record Rotated(String username, String refreshToken) {}
+
+    @Transactional
+    public String issue(String username) {
+        return create(username, UUID.randomUUID().toString());
+    }
+
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotated rotate(String presented) {
+        RefreshToken current = repo.findByTokenHash(hash(presented))      // ⚡ 1 indexed lookup
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        if (current.getExpiresAt().isBefore(Instant.now())) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+        if (current.isRevoked() || repo.revokeIfActive(current.getId()) == 0) {
+            // 🚨 Already used → someone replayed it. Kill the whole login chain.
+            repo.revokeFamily(current.getFamily());
+            throw new BadCredentialsException("Refresh token reused");
+        }
+        return new Rotated(current.getUsername(), create(current.getUsername(), current.getFamily()));
+    }
+
+    @Transactional
+    public void revoke(String presented) {
+        repo.findByTokenHash(hash(presented)).ifPresent(t -> repo.revokeFamily(t.getFamily()));
+    }
+
+    // 🧹 Keep the table small
+    @Scheduled(fixedDelayString = "${jwt.refresh-token-cleanup-ms:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        repo.deleteExpired(Instant.now());
+    }
+
+    private String create(String username, String family) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = B64.encodeToString(bytes);   // 256 random bits, opaque to the client
+
+        RefreshToken row = new RefreshToken();
+        row.setTokenHash(hash(token));
+        row.setFamily(family);
+        row.setUsername(username);
+        row.setExpiresAt(Instant.now().plus(ttl));
+        repo.save(row);
+        return token;
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return B64.encodeToString(sha.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
+```
+
+> Why SHA-256 and not BCrypt for the refresh token? It is 256 **random** bits —
+> nobody can guess it, so a slow hash adds nothing. Passwords are different (humans pick them).
+
+---
+
+## 🔐 5. `JwtUtil` — configurable lifetime
+
+Only `generateToken` changes:
+
+```java
+@Value("${jwt.access-token-ttl:15m}")
+private Duration accessTokenTtl;
+
+public String generateToken(String username, String role) {
+    return Jwts.builder()
+            .setSubject(username)
+            .claim("role", role)
+            .setIssuedAt(new Date())
+            .setExpiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+            .signWith(Keys.hmacShaKeyFor(secret.getBytes()), SignatureAlgorithm.HS256)
+            .compact();
+}
+
+public long getAccessTokenTtlSeconds() {
+    return accessTokenTtl.toSeconds();
+}
+```
+
+---
+
+## 📘 6. DTOs
+
+```java
+public class AuthResponse {
+    private String token;
+    private String refreshToken;
+    private long expiresIn;      // seconds, so clients know when to refresh
+
+    public AuthResponse(String token, String refreshToken, long expiresIn) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+
+    // Getters
+}
+
+public class RefreshRequest {
+    private String refreshToken;
+
+    // Getter and Setter
+}
+```
+
+> Using the codecs from `10_Reflection-Free JSON`? Add `refreshToken` and `expiresIn`
+> to `AuthJsonCodec.ResponseSerializer` as well.
+
+---
+
+## 🧱 7. `AuthController`
+
+```java
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+
+    @Autowired
+    private AuthenticationManager authManager;
+
+    @Autowired
+    private CustomUserDetailsService userService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private RefreshTokenService refreshTokens;
+
+    // register(...) unchanged
+
+    @PostMapping("/login")
+    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
+        authManager.authenticate(
+                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));  // 🐢 once
+
+        UserDetails userDetails = userService.loadUserByUsername(request.getUsername());
+        return ResponseEntity.ok(tokensFor(userDetails, refreshTokens.issue(userDetails.getUsername())));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshRequest request) {
+        if (!StringUtils.hasText(request.getRefreshToken())) {
+            return ResponseEntity.badRequest().build();                 // null would NPE in hash() → 500
+        }
+        RefreshTokenService.Rotated rotated = refreshTokens.rotate(request.getRefreshToken());   // ⚡ no BCrypt
+
+        // Reload the user so role changes / deleted users apply at the next refresh
+        UserDetails userDetails = userService.loadUserByUsername(rotated.username());
+        return ResponseEntity.ok(tokensFor(userDetails, rotated.refreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshRequest request) {
+        if (!StringUtils.hasText(request.getRefreshToken())) {
+            return ResponseEntity.badRequest().build();
+        }
+        refreshTokens.revoke(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    // Bad password, bad / expired / reused refresh token → 401.
+    // Without this, ExceptionTranslationFilter answers 403 (no httpBasic/formLogin entry point).
+    @ExceptionHandler(BadCredentialsException.class)
+    public ResponseEntity<Void> badCredentials(BadCredentialsException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+
+    private AuthResponse tokensFor(UserDetails userDetails, String refreshToken) {
+        String token = jwtUtil.generateToken(userDetails.getUsername(), userDetails.getAuthorities().toString());
+        return new AuthResponse(token, refreshToken, jwtUtil.getAccessTokenTtlSeconds());
+    }
+}
+```
+
+`/auth/**` is already `permitAll()` in `SecurityConfig` → nothing to change there.
+A bad refresh token throws `BadCredentialsException` → the `@ExceptionHandler` turns it into **401**.
+(Left to Spring Security, it would be **403**: our chain has no `httpBasic()`/`formLogin()`,
+so `ExceptionTranslationFilter` falls back to `Http403ForbiddenEntryPoint`.)
+A missing or blank `refreshToken` → **400**.
+Don't forget `@EnableScheduling` (added in `8_Scalable User Store`) for the cleanup job.
+
+---
+
+## ✅ Testing the Flow
+
+1. `POST /auth/login` →
+
+```json
+{ "token": "eyJ...", "refreshToken": "q3N0...", "expiresIn": 900 }
+```
+
+2. Call `/api/user/hello` with `Authorization: Bearer <token>` ✅
+3. After 15 min → **401**. Now:
+
+```
+POST /auth/refresh
+{ "refreshToken": "q3N0..." }
+```
+
+→ new `token` **and** new `refreshToken`.
+
+4. Send the **old** refresh token again → **401**, and the new one stops working too (reuse detection 🚨).
+5. `POST /auth/logout` with the current refresh token → later refresh → **401**.
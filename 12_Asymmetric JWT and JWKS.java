@@ -0,0 +1,594 @@
+Asymmetric JWT Signing (ES256 / EdDSA) + JWKS Endpoint
+
+In `6_JWT_Auth` the `JwtUtil` signs and verifies with the **same** HMAC secret:
+
+```java
+private final String secret = "myjwtsecretkey";   // every node that VERIFIES also needs this
+```
+
+Problem: any node that can verify a token can also **create** one. 😬
+So we can't have "a few auth nodes" + "many API nodes that only check tokens".
+
+With asymmetric keys:
+
+* 🔐 **Private key** → only on the issuer (`/auth/login`, `/auth/refresh`)
+* 🔓 **Public key** → published at `/.well-known/jwks.json`, anyone can verify
+* 🚀 API nodes fetch the public key once, cache it, and scale out on their own
+
+> ⚠️ Side note: `"myjwtsecretkey"` is only 14 bytes. `Keys.hmacShaKeyFor` rejects keys
+> shorter than 256 bits (`WeakKeyException`) — HS256 needs a secret of **32+ bytes**.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `jwt.algorithm = HS256 | ES256 | EdDSA` (pluggable)
+2. ✅ `kid` (key id) in every token header
+3. ✅ `GET /.well-known/jwks.json` on the issuer
+4. ✅ `JwksKeyLocator` on verifier nodes — public keys cached in a map, re-fetched only for an unknown `kid`
+5. ✅ JMH benchmark: sign + verify cost for HS256, ES256, EdDSA
+
+---
+
+## 📦 1. Dependencies — upgrade jjwt to 0.12
+
+0.11.5 has no EdDSA and no JWK support. 0.12 has both.
+
+```xml
+<dependency>
+    <groupId>io.jsonwebtoken</groupId>
+    <artifactId>jjwt-api</artifactId>
+    <version>0.12.6</version>
+</dependency>
+<dependency>
+    <groupId>io.jsonwebtoken</groupId>
+    <artifactId>jjwt-impl</artifactId>
+    <version>0.12.6</version>
+    <scope>runtime</scope>
+</dependency>
+<dependency>
+    <groupId>io.jsonwebtoken</groupId>
+    <artifactId>jjwt-jackson</artifactId>
+    <version>0.12.6</version>
+    <scope>runtime</scope>
+</dependency>
+```
+
+> EdDSA (Ed25519) is built into the JDK since Java 15 — no extra crypto library needed.
+
+---
+
+## ⚙️ 2. application.properties
+
+Issuer node (the one with `/auth/login`):
+
+```properties
+jwt.role=issuer
+jwt.algorithm=ES256
+# Optional: PEM files. Without them a new key pair is generated at every start.
+jwt.private-key=file:config/jwt-private.pem
+jwt.public-key=file:config/jwt-public.pem
+```
+
+Verifier node (API only):
+
+```properties
+jwt.role=verifier
+jwt.jwks-uri=http://auth-node:8080/.well-known/jwks.json
+```
+
+Create a key pair once:
+
+```bash
+# ES256
+openssl ecparam -name prime256v1 -genkey -noout | openssl pkcs8 -topk8 -nocrypt -out config/jwt-private.pem
+# or EdDSA
+openssl genpkey -algorithm ed25519 -out config/jwt-private.pem
+
+openssl pkey -in config/jwt-private.pem -pubout -out config/jwt-public.pem
+```
+
+---
+
+## 🔑 3. `SigningKey.java`
+
+```java
+package com.example.demo.security;
+
+import java.security.Key;
+import java.security.PublicKey;
+
+public record SigningKey(String kid, Key signingKey, Key verificationKey) {
+
+    public boolean isAsymmetric() {
+        return verificationKey instanceof PublicKey;
+    }
+}
+```
+
+---
+
+## 🏭 4. `JwtKeyConfig.java`
+
+```java
+package com.example.demo.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import javax.crypto.SecretKey;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+
+@Configuration
+public class JwtKeyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "jwt.role", havingValue = "issuer", matchIfMissing = true)
+    public SigningKey signingKey(@Value("${jwt.algorithm:ES256}") String algorithm,
+                                 @Value("${jwt.secret:}") String secret,
+                                 @Value("${jwt.private-key:}") Resource privatePem,
+                                 @Value("${jwt.public-key:}") Resource publicPem) throws Exception {
+
+        if ("HS256".equals(algorithm)) {
+            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));  // needs 32+ bytes
+            return new SigningKey("hs256", key, key);
+        }
+
+        KeyPair pair = privatePem != null
+                ? readPem(algorithm, privatePem, publicPem)
+                : switch (algorithm) {
+                    case "ES256" -> Jwts.SIG.ES256.keyPair().build();
+                    case "EdDSA" -> Jwks.CRV.Ed25519.keyPair().build();
+                    default -> throw new IllegalArgumentException("Unsupported jwt.algorithm: " + algorithm);
+                };
+
+        // kid = RFC 7638 thumbprint → same key always gets the same id, on every node
+        String kid = Jwks.builder().key(pair.getPublic()).idFromThumbprint().build().getId();
+        return new SigningKey(kid, pair.getPrivate(), pair.getPublic());
+    }
+
+    // Issuer verifies its own tokens with its own key — no HTTP call
+    @Bean
+    @ConditionalOnProperty(name = "jwt.role", havingValue = "issuer", matchIfMissing = true)
+    public Locator<Key> localKeyLocator(SigningKey signingKey) {
+        return new LocalKeyLocator(signingKey);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "jwt.role", havingValue = "verifier")
+    public Locator<Key> jwksKeyLocator(@Value("${jwt.jwks-uri}") URI jwksUri) {
+        // max age = the Cache-Control of JwksController → a removed key is gone within 10 minutes
+        return new JwksKeyLocator(jwksUri, Duration.ofSeconds(30), Duration.ofMinutes(10));
+    }
+
+    private static KeyPair readPem(String algorithm, Resource privatePem, Resource publicPem) throws Exception {
+        if (publicPem == null) {
+            throw new IllegalStateException("jwt.public-key must be set together with jwt.private-key");
+        }
+        KeyFactory factory = KeyFactory.getInstance("ES256".equals(algorithm) ? "EC" : "Ed25519");
+        return new KeyPair(
+                factory.generatePublic(new X509EncodedKeySpec(pemBody(publicPem))),
+                factory.generatePrivate(new PKCS8EncodedKeySpec(pemBody(privatePem))));
+    }
+
+    private static byte[] pemBody(Resource pem) throws Exception {
+        String text = pem.getContentAsString(StandardCharsets.US_ASCII)
+                .replaceAll("-----[A-Z ]+-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(text);
+    }
+}
+```
+
+---
+
+## 🔎 5. Key Locators
+
+jjwt calls the locator with the token header, we return the key for its `kid`.
+
+### `LocalKeyLocator.java` (issuer)
+
+```java
+package com.example.demo.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+import java.security.Key;
+
+public class LocalKeyLocator extends LocatorAdapter<Key> {
+
+    private final SigningKey key;
+
+    public LocalKeyLocator(SigningKey key) {
+        this.key = key;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        if (key.kid().equals(header.getKeyId())) {
+            return key.verificationKey();
+        }
+        throw new UnsupportedJwtException("Unknown key id: " + header.getKeyId());
+    }
+}
+```
+
+### `JwksKeyLocator.java` (verifier)
+
+```java
+package com.example.demo.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JwksKeyLocator extends LocatorAdapter<Key> {
+
+    private final URI jwksUri;
+    private final Duration minRefreshInterval;
+    private final Duration maxAge;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    // kid → public key. Never changed in place: refresh() builds a new map and swaps it in,
+    // so a key the issuer REMOVED (rotated out, compromised) disappears here too
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile Instant lastFetch = Instant.EPOCH;
+
+    public JwksKeyLocator(URI jwksUri, Duration minRefreshInterval, Duration maxAge) {
+        this.jwksUri = jwksUri;
+        this.minRefreshInterval = minRefreshInterval;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            throw new UnsupportedJwtException("Token has no kid");
+        }
+        if (Instant.now().isAfter(lastFetch.plus(maxAge))) {
+            refreshIfReachable();            // ⏰ stale → pick up removed keys, not only new ones
+        }
+        Key key = keys.get(kid);             // ⚡ normal case: cached, no network
+        if (key == null) {
+            refresh();                       // new kid → issuer rotated its key
+            key = keys.get(kid);
+        }
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown key id: " + kid);
+        }
+        return key;
+    }
+
+    private void refreshIfReachable() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Issuer down / answering junk → keep the last known keys; a restart of the issuer
+            // must not log everybody out
+        }
+    }
+
+    private synchronized void refresh() {
+        // 🛑 Random/forged kids must not turn into a flood of requests to the issuer
+        if (Instant.now().isBefore(lastFetch.plus(minRefreshInterval))) return;
+        lastFetch = Instant.now();
+
+        try {
+            HttpRequest request = HttpRequest.newBuilder(jwksUri).timeout(Duration.ofSeconds(2)).GET().build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                // e.g. a 503 HTML page from a restarting issuer → never feed that to the JWKS parser
+                throw new UnsupportedJwtException("JWKS endpoint answered " + response.statusCode());
+            }
+
+            JwkSet set = Jwks.setParser().build().parse(response.body());
+            Map<String, Key> fetched = new HashMap<>();
+            for (Jwk<?> jwk : set.getKeys()) {
+                fetched.put(jwk.getId(), jwk.toKey());
+            }
+            keys = Map.copyOf(fetched);      // 🔁 one atomic swap: readers see the old OR the new set
+        } catch (UnsupportedJwtException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Malformed JSON / JWK → jjwt throws its own exceptions; one type for callers
+            throw new UnsupportedJwtException("Invalid JWKS from " + jwksUri, e);
+        } catch (IOException e) {
+            throw new UnsupportedJwtException("Cannot fetch JWKS from " + jwksUri, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnsupportedJwtException("Interrupted while fetching JWKS", e);
+        }
+    }
+}
+```
+
+---
+
+## 🌐 6. `JwksController.java`
+
+```java
+package com.example.demo.controller;
+
+import com.example.demo.security.SigningKey;
+import io.jsonwebtoken.security.Jwks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@ConditionalOnProperty(name = "jwt.role", havingValue = "issuer", matchIfMissing = true)
+public class JwksController {
+
+    private final Map<String, Object> jwks;
+
+    @Autowired
+    public JwksController(SigningKey signingKey) {
+        if (signingKey.isAsymmetric()) {
+            Map<String, ?> jwk = Jwks.builder().key((PublicKey) signingKey.verificationKey()).idFromThumbprint().build();
+            this.jwks = Map.of("keys", List.of(new LinkedHashMap<>(jwk)));
+        } else {
+            this.jwks = Map.of("keys", List.of());   // 🔒 never publish an HMAC secret!
+        }
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePublic())
+                .body(jwks);
+    }
+}
+```
+
+Example response:
+
+```json
+{ "keys": [ { "kty": "EC", "crv": "P-256", "x": "f83O...", "y": "x_FE...", "kid": "NzbLsXh8..." } ] }
+```
+
+---
+
+## 🔐 7. New `JwtUtil.java`
+
+Same public methods as before, plus `validateToken(Claims, ...)` for a token that is already parsed.
+
+```java
+package com.example.demo.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Date;
+
+@Component
+public class JwtUtil {
+
+    @Autowired(required = false)        // null on verifier nodes
+    private SigningKey signingKey;
+
+    @Autowired
+    private Locator<Key> keyLocator;
+
+    @Value("${jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        parser = Jwts.parser().keyLocator(keyLocator).build();   // built once, thread-safe
+    }
+
+    public String generateToken(String username, String role) {
+        if (signingKey == null) {
+            throw new IllegalStateException("This node only verifies tokens (jwt.role=verifier)");
+        }
+        return Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .subject(username)
+                .claim("role", role)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(signingKey.signingKey())   // algorithm picked from the key type
+                .compact();
+    }
+
+    /** Verifies signature AND expiry (throws ExpiredJwtException when expired). */
+    public Claims parse(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    public String extractUsername(String token) {
+        return parse(token).getSubject();
+    }
+
+    public boolean validateToken(String token, UserDetails userDetails) {
+        return validateToken(parse(token), userDetails);
+    }
+
+    /** For claims from {@link #parse} — signature and expiry were checked there, not again. */
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername());
+    }
+
+    public boolean isTokenExpired(String token) {
+        return parse(token).getExpiration().before(new Date());
+    }
+
+    public long getAccessTokenTtlSeconds() {
+        return accessTokenTtl.toSeconds();
+    }
+}
+```
+
+`JwtFilter` parses once and reuses the claims. Before, `extractUsername` + `validateToken` ran
+`parse()` twice → **two** signature checks per request, and ES256/EdDSA verification is not cheap:
+
+```java
+String username = null;
+Claims claims = null;
+
+if (authHeader != null && authHeader.startsWith("Bearer ")) {
+    claims = jwtUtil.parse(authHeader.substring(7));   // 🔐 the only signature check
+    username = claims.getSubject();
+}
+
+if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+    UserDetails userDetails = userService.loadUserByUsername(username);
+
+    if (jwtUtil.validateToken(claims, userDetails)) {
+        // ... unchanged
+    }
+}
+```
+
+And allow the JWKS URL without login in `SecurityConfig`:
+
+```java
+.requestMatchers("/auth/**", "/.well-known/jwks.json").permitAll()
+```
+
+---
+
+## 📊 8. Benchmark — `JwtSignatureBenchmark.java` (`src/test/java`)
+
+```java
+package com.example.demo.bench;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSignatureBenchmark {
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    String algorithm;
+
+    Key signKey;
+    JwtParser parser;
+    String token;
+
+    @Setup
+    public void setup() {
+        switch (algorithm) {
+            case "HS256" -> {
+                SecretKey key = Jwts.SIG.HS256.key().build();
+                signKey = key;
+                parser = Jwts.parser().verifyWith(key).build();
+            }
+            case "ES256" -> useKeyPair(Jwts.SIG.ES256.keyPair().build());
+            case "EdDSA" -> useKeyPair(Jwks.CRV.Ed25519.keyPair().build());
+        }
+        token = sign();
+    }
+
+    private void useKeyPair(KeyPair pair) {
+        signKey = pair.getPrivate();
+        parser = Jwts.parser().verifyWith(pair.getPublic()).build();
+    }
+
+    @Benchmark
+    public String sign() {
+        return Jwts.builder()
+                .subject("admin")
+                .claim("role", "[ROLE_ADMIN]")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(signKey)
+                .compact();
+    }
+
+    @Benchmark
+    public Object verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JwtSignatureBenchmark.class.getSimpleName()).build()).run();
+    }
+}
+```
+
+What to expect (shape, not exact numbers — run it on your machine):
+
+| Algorithm | Sign       | Verify     | Key on verifier |
+| --------- | ---------- | ---------- | --------------- |
+| HS256     | fastest    | fastest    | 🔐 shared secret |
+| ES256     | slower     | slowest    | 🔓 public key    |
+| EdDSA     | fast       | fast-ish   | 🔓 public key    |
+
+> Verify happens on **every** request, sign only on login/refresh → look at the verify column first.
+
+---
+
+## ✅ Your Task
+
+1. Start the issuer with `jwt.algorithm=EdDSA` and open `/.well-known/jwks.json`.
+2. Start a second instance on port 8081 with `jwt.role=verifier` + `jwt.jwks-uri` pointing to the first.
+3. Log in on 8080, call `/api/user/hello` on 8081 with the token → ✅ works.
+4. Try `POST /auth/login` on 8081 → fails: verifier nodes can't sign. 🔒
+5. Run `JwtSignatureBenchmark` and fill in the table with your numbers.
@@ -0,0 +1,454 @@
+JWT Revocation List — Bloom Filter Fast Path
+
+A JWT is valid until it expires. `JwtUtil` has no way to say "this token is dead **now**"
+(stolen laptop, user fired, password changed...). 😬
+
+Checking a database table in `JwtFilter` on **every** request would fix it — and make every request slower.
+
+Trick: almost no token is ever revoked. So we need a check that is **super fast for "no"**:
+
+```
+jti ──► Bloom filter ──"definitely not revoked" (99.99%)──► ✅ continue   (~50 ns, no lock, no DB)
+              │
+              └─"maybe"──► exact ConcurrentHashMap ──► revoked? ──► ❌ 401
+```
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ Every token gets a `jti` (unique token id)
+2. ✅ `BloomFilter` — lock-free, on-heap or **off-heap** (`ByteBuffer.allocateDirect`)
+3. ✅ `TokenRevocationService` — Bloom filter + exact map + `revoked_token` table
+4. ✅ Other nodes pick up revocations by polling the table (incremental, by a **commit-ordered** id)
+5. ✅ Automatic pruning: once a token has expired anyway, its entry is dropped
+6. ✅ `/auth/logout` revokes the current access token, admins can revoke any `jti`
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+jwt.revocation.expected-entries=1000000
+jwt.revocation.false-positive-rate=0.0001
+jwt.revocation.off-heap=false
+jwt.revocation.sync-ms=2000
+jwt.revocation.prune-ms=60000
+```
+
+> 1M entries at 0.01 % false positives ≈ 19 bits per entry ≈ **2.4 MB**. Tiny. 🐜
+
+---
+
+## 🪪 2. `JwtUtil` — add a `jti`
+
+In `generateToken` (from `12_Asymmetric JWT and JWKS`) add one line:
+
+```java
+return Jwts.builder()
+        .header().keyId(signingKey.kid()).and()
+        .id(UUID.randomUUID().toString())     // 👈 jti
+        .subject(username)
+        ...
+```
+
+---
+
+## 🌸 3. `BloomFilter.java`
+
+```java
+package com.example.demo.security;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lock-free Bloom filter. Bits live in a long[] (heap) or a direct ByteBuffer (off-heap).
+ * No false negatives: if put(x) happened-before mightContain(x), it returns true.
+ */
+public final class BloomFilter {
+
+    private static final VarHandle HEAP = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle OFF_HEAP = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final long[] heapBits;          // null when off-heap
+    private final ByteBuffer offHeapBits;   // null when on-heap
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate, boolean offHeap) {
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) ((bits + 63) / 64);
+
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * ln2));
+
+        if (offHeap) {
+            // Atomic VarHandle access on a direct buffer needs 8-byte alignment
+            this.offHeapBits = ByteBuffer.allocateDirect(words * 8 + 7).alignedSlice(8);
+            this.heapBits = null;
+        } else {
+            this.heapBits = new long[words];
+            this.offHeapBits = null;
+        }
+    }
+
+    public void put(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;     // double hashing: h1 + i*h2
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;                        // shift uses the low 6 bits
+            if (heapBits != null) {
+                long ignored = (long) HEAP.getAndBitwiseOr(heapBits, word, mask);
+            } else {
+                long ignored = (long) OFF_HEAP.getAndBitwiseOr(offHeapBits, word * 8, mask);
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long value = heapBits != null
+                    ? (long) HEAP.getVolatile(heapBits, word)
+                    : (long) OFF_HEAP.getVolatile(offHeapBits, word * 8);
+            if ((value & (1L << bit)) == 0) {
+                return false;                             // ✅ definitely not in the set
+            }
+        }
+        return true;                                      // maybe → ask the exact set
+    }
+
+    // FNV-1a over UTF-8 bytes, then a murmur3 finalizer for good bit spread
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87e3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
+```
+
+> A Bloom filter can't **delete** a key. We "delete" by building a fresh filter from the
+> still-valid entries during pruning (step 5).
+
+---
+
+## 🧱 4. `RevokedToken` Entity + Repository
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "revoked_token", indexes = @Index(name = "ix_revoked_token_expires", columnList = "expiresAt"))
+public class RevokedToken {
+
+    @Id
+    private Long id;                      // from RevokedTokenCounter → other nodes poll "id > lastSeen"
+
+    @Column(nullable = false, length = 36)
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expiresAt;            // after this the token is dead anyway
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(Long id, String jti, Instant expiresAt) {
+        this.id = id;
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+}
+```
+
+Why not `@GeneratedValue(IDENTITY)`? Identity values are handed out at **insert**, not at **commit**:
+
+```
+node A: insert → id 7 ........................ commit
+node B:             insert → id 8 → commit
+node C: sync sees 8 → lastSeenId = 8 ........... id 7 is never read → token stays valid on C 😱
+```
+
+Same fix as the change feed in `17_Outbox and SSE Change Feed`: a one-row counter. Updating it
+**locks** the row until commit → the next revocation waits → ids become visible in order, no gaps.
+Revocations are rare, so the lock costs nothing.
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class RevokedTokenCounter {
+
+    @Id
+    private Long id;                      // always 1
+
+    private long lastId;
+
+    // Getters and Setters
+}
+```
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    List<RevokedToken> findByIdGreaterThanOrderByIdAsc(Long lastSeenId);
+
+    @Query("select coalesce(max(t.id), 0) from RevokedToken t")
+    long newestId();
+
+    @Modifying
+    @Query("update RevokedTokenCounter c set c.lastId = c.lastId + 1 where c.id = 1")
+    int bumpId();
+
+    @Query("select c.lastId from RevokedTokenCounter c where c.id = 1")
+    long currentId();
+
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
+```
+
+---
+
+## 🛡️ 5. `TokenRevocationService.java`
+
+```java
+package com.example.demo.security;
+
+import com.example.demo.model.RevokedToken;
+import com.example.demo.model.RevokedTokenCounter;
+import com.example.demo.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TokenRevocationService {
+
+    @Autowired
+    private RevokedTokenRepository repo;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Value("${jwt.revocation.expected-entries:1000000}")
+    private long expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.0001}")
+    private double falsePositiveRate;
+
+    @Value("${jwt.revocation.off-heap:false}")
+    private boolean offHeap;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();   // jti → expiresAt (epoch ms)
+    private volatile BloomFilter bloom;
+    private long lastSeenId = 0;
+
+    @PostConstruct
+    void init() {
+        bloom = new BloomFilter(expectedEntries, falsePositiveRate, offHeap);
+        sync();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createCounter() {
+        if (em.find(RevokedTokenCounter.class, 1L) == null) {
+            RevokedTokenCounter counter = new RevokedTokenCounter();
+            counter.setId(1L);
+            counter.setLastId(repo.newestId());
+            em.persist(counter);
+        }
+    }
+
+    /** Hot path — called by JwtFilter on every request. No lock, no DB. */
+    public boolean isRevoked(String jti) {
+        return jti != null
+                && bloom.mightContain(jti)           // ⚡ 99.99 % of calls stop here
+                && revoked.containsKey(jti);         // exact answer for the rest
+    }
+
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        repo.bumpId();                               // 🔒 row lock held until commit → commit-ordered ids
+        repo.save(new RevokedToken(repo.currentId(), jti, expiresAt));
+        add(jti, expiresAt.toEpochMilli());          // effective on this node immediately
+    }
+
+    // 🔁 Pick up revocations made on other nodes. Ids are committed in order (counter lock),
+    //    so nothing below lastSeenId can still show up later.
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-ms:2000}")
+    public synchronized void sync() {
+        for (RevokedToken t : repo.findByIdGreaterThanOrderByIdAsc(lastSeenId)) {
+            add(t.getJti(), t.getExpiresAt().toEpochMilli());
+            lastSeenId = t.getId();
+        }
+    }
+
+    // 🧹 Expired tokens fail signature/expiry checks anyway → forget them
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-ms:60000}")
+    @Transactional
+    public void prune() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            revoked.values().removeIf(expiresAt -> expiresAt < now);
+
+            BloomFilter fresh = new BloomFilter(expectedEntries, falsePositiveRate, offHeap);
+            revoked.keySet().forEach(fresh::put);
+            bloom = fresh;                           // swap; readers never see a half-built filter
+        }
+        repo.deleteExpired(Instant.ofEpochMilli(now));
+    }
+
+    // synchronized with prune(): a revocation can never land in a filter that is being replaced
+    private synchronized void add(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        bloom.put(jti);
+    }
+}
+```
+
+> Order matters: the exact map is written **before** the Bloom filter.
+> So when the filter says "maybe", the map already has the answer.
+
+---
+
+## 🧰 6. `JwtFilter` — one extra check
+
+```java
+if (authHeader != null && authHeader.startsWith("Bearer ")) {
+    claims = jwtUtil.parse(authHeader.substring(7));   // parsed once (12_Asymmetric JWT and JWKS)
+
+    if (revocations.isRevoked(claims.getId())) {
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token revoked");
+        return;                                  // ❌ stop the chain
+    }
+    username = claims.getSubject();
+}
+```
+
+(with `@Autowired private TokenRevocationService revocations;` next to `jwtUtil`)
+
+---
+
+## 🧱 7. Revoke endpoints
+
+Logout (from `11_Refresh Tokens`) now also kills the current access token:
+
+```java
+@PostMapping("/logout")
+public ResponseEntity<Void> logout(@RequestBody RefreshRequest request,
+                                   @RequestHeader(value = "Authorization", required = false) String authHeader) {
+    if (!StringUtils.hasText(request.getRefreshToken())) {
+        return ResponseEntity.badRequest().build();          // same guard as in 11_Refresh Tokens
+    }
+    refreshTokens.revoke(request.getRefreshToken());
+    if (authHeader != null && authHeader.startsWith("Bearer ")) {
+        try {
+            Claims claims = jwtUtil.parse(authHeader.substring(7));
+            revocations.revoke(claims.getId(), claims.getExpiration().toInstant());
+        } catch (JwtException e) {
+            // Expired or tampered → not accepted anywhere anyway, nothing to revoke
+        }
+    }
+    return ResponseEntity.noContent().build();
+}
+```
+
+(`io.jsonwebtoken.JwtException`)
+
+Admin-only revoke by `jti` (`/api/admin/**` already needs `ROLE_ADMIN`):
+
+```java
+@RestController
+@RequestMapping("/api/admin/tokens")
+public class TokenAdminController {
+
+    @Autowired
+    private TokenRevocationService revocations;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @PostMapping("/{jti}/revoke")
+    public ResponseEntity<Void> revoke(@PathVariable String jti) {
+        // We don't know this token's exact expiry → keep the entry for one full access-token lifetime
+        revocations.revoke(jti, Instant.now().plusSeconds(jwtUtil.getAccessTokenTtlSeconds()));
+        return ResponseEntity.noContent().build();
+    }
+}
+```
+
+---
+
+## 🔍 How It Works
+
+| Situation                      | Path                                 | Cost           |
+| ------------------------------ | ------------------------------------ | -------------- |
+| Normal token (not revoked)     | Bloom → "no"                         | ~k memory reads |
+| Revoked token                  | Bloom → "maybe" → map → yes          | + 1 map lookup |
+| False positive (1 in 10,000)   | Bloom → "maybe" → map → no           | + 1 map lookup |
+| Revoked on another node        | visible after ≤ `sync-ms` (2 s)      | —              |
+| Token expired                  | removed at next prune                | —              |
+
+---
+
+## ✅ Your Task
+
+1. Log in, call `/api/user/hello` → ✅
+2. `POST /auth/logout` with that token → call `/api/user/hello` again → **401 Token revoked**
+3. Start a 2nd node, revoke on node 1, wait 2 s → node 2 also returns **401**
+4. Try `jwt.revocation.off-heap=true` and compare heap usage in VisualVM / `jcmd <pid> GC.heap_info`
@@ -0,0 +1,396 @@
+Trie-Based URL Authorization
+
+In `6_JWT_Auth` the rules look like this:
+
+```java
+.authorizeHttpRequests(auth -> auth
+    .requestMatchers("/auth/**").permitAll()
+    .requestMatchers("/api/admin/**").hasRole("ADMIN")
+    .requestMatchers("/api/user/**").hasAnyRole("USER", "ADMIN")
+    .anyRequest().authenticated()
+)
+```
+
+Spring checks them **one by one, top to bottom**, until one matches.
+4 rules → no problem. 500 rules (one per microservice route, per tenant, ...) → every request
+runs up to 500 pattern matches. 🐢 O(number of rules)
+
+Better: split the patterns into path segments and store them in a **trie** once at startup.
+A request walks the trie segment by segment → cost depends on the **path length**, not the rule count. ⚡
+
+```
+(root)
+ ├── auth ── ** → permitAll
+ └── api
+      ├── admin ── ** → ADMIN
+      └── user  ── ** → USER, ADMIN
+(no match) → authenticated
+```
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `TrieAuthorizationManager` — implements Spring Security's `AuthorizationManager`
+2. ✅ Same "first declared rule wins" behaviour as the normal chain
+3. ✅ Supports `literal`, `*` (one segment) and trailing `/**`, optional HTTP method
+4. ✅ JMH benchmark: 10 / 100 / 1000 rules vs the normal matcher chain
+
+---
+
+## 🌳 1. `TrieAuthorizationManager.java`
+
+```java
+package com.example.demo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public final class TrieAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    private final Node root;
+    private final Rule fallback;                          // like anyRequest()
+
+    private TrieAuthorizationManager(Node root, Rule fallback) {
+        this.root = root;
+        this.fallback = fallback;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        Rule rule = match(PATHS.getPathWithinApplication(request), request.getMethod());
+        return new AuthorizationDecision(rule.allows(authentication.get()));
+    }
+
+    /** Walks the trie once; among all matching rules the one declared first wins. */
+    Rule match(String path, String method) {
+        Rule best = null;
+        List<Node> current = List.of(root);
+
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) end = path.length();
+            if (end > start) {                            // skip empty segments ("//", leading "/")
+                String segment = path.substring(start, end);
+                List<Node> next = new ArrayList<>(2);
+                for (Node node : current) {
+                    best = earliest(best, node.anySuffix, method);    // "/x/**" matches "/x/anything"
+                    Node literal = node.children.get(segment);
+                    if (literal != null) next.add(literal);
+                    if (node.anySegment != null) next.add(node.anySegment);
+                }
+                if (next.isEmpty()) {
+                    return best != null ? best : fallback;
+                }
+                current = next;
+            }
+            start = end + 1;
+        }
+
+        for (Node node : current) {
+            best = earliest(best, node.exact, method);
+            best = earliest(best, node.anySuffix, method);             // "/x/**" also matches "/x"
+        }
+        return best != null ? best : fallback;
+    }
+
+    private static Rule earliest(Rule best, List<Rule> candidates, String method) {
+        for (Rule rule : candidates) {
+            if ((rule.method == null || rule.method.matches(method))
+                    && (best == null || rule.order < best.order)) {
+                best = rule;
+            }
+        }
+        return best;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Node anySegment;                                  // "*"
+        final List<Rule> exact = new ArrayList<>(1);      // pattern ends here
+        final List<Rule> anySuffix = new ArrayList<>(1);  // pattern ends with "/**" here
+    }
+
+    enum Access { PERMIT_ALL, DENY_ALL, AUTHENTICATED, ROLES }
+
+    static final class Rule {
+        final int order;
+        final HttpMethod method;                          // null = any method
+        final Access access;
+        final Set<String> authorities;                    // "ROLE_ADMIN", ...
+
+        Rule(int order, HttpMethod method, Access access, Set<String> authorities) {
+            this.order = order;
+            this.method = method;
+            this.access = access;
+            this.authorities = authorities;
+        }
+
+        boolean allows(Authentication auth) {
+            return switch (access) {
+                case PERMIT_ALL -> true;
+                case DENY_ALL -> false;
+                case AUTHENTICATED -> isAuthenticated(auth);
+                case ROLES -> isAuthenticated(auth) && hasAnyAuthority(auth);
+            };
+        }
+
+        private boolean hasAnyAuthority(Authentication auth) {
+            for (GrantedAuthority granted : auth.getAuthorities()) {
+                if (authorities.contains(granted.getAuthority())) return true;
+            }
+            return false;
+        }
+
+        private static boolean isAuthenticated(Authentication auth) {
+            return auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    public static final class Builder {
+        private final Node root = new Node();
+        private int order = 0;
+        private Rule fallback = new Rule(Integer.MAX_VALUE, null, Access.AUTHENTICATED, Set.of());
+
+        public Builder permitAll(String pattern) {
+            return add(null, pattern, Access.PERMIT_ALL, Set.of());
+        }
+
+        public Builder denyAll(String pattern) {
+            return add(null, pattern, Access.DENY_ALL, Set.of());
+        }
+
+        public Builder authenticated(String pattern) {
+            return add(null, pattern, Access.AUTHENTICATED, Set.of());
+        }
+
+        public Builder hasRole(String pattern, String role) {
+            return hasAnyRole((HttpMethod) null, pattern, role);
+        }
+
+        public Builder hasAnyRole(String pattern, String... roles) {
+            return hasAnyRole((HttpMethod) null, pattern, roles);
+        }
+
+        public Builder hasAnyRole(HttpMethod method, String pattern, String... roles) {
+            Set<String> authorities = new HashSet<>();
+            for (String role : roles) authorities.add("ROLE_" + role);
+            return add(method, pattern, Access.ROLES, Set.copyOf(authorities));
+        }
+
+        public Builder anyRequestPermitAll() {
+            fallback = new Rule(Integer.MAX_VALUE, null, Access.PERMIT_ALL, Set.of());
+            return this;
+        }
+
+        public Builder anyRequestAuthenticated() {
+            fallback = new Rule(Integer.MAX_VALUE, null, Access.AUTHENTICATED, Set.of());
+            return this;
+        }
+
+        public TrieAuthorizationManager build() {
+            return new TrieAuthorizationManager(root, fallback);
+        }
+
+        private Builder add(HttpMethod method, String pattern, Access access, Set<String> authorities) {
+            Rule rule = new Rule(order++, method, access, authorities);
+            String[] segments = pattern.split("/");
+            Node node = root;
+
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.isEmpty()) continue;
+
+                if (segment.equals("**")) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("'**' is only supported at the end: " + pattern);
+                    }
+                    node.anySuffix.add(rule);
+                    return this;
+                }
+                if (segment.equals("*")) {
+                    if (node.anySegment == null) node.anySegment = new Node();
+                    node = node.anySegment;
+                } else if (segment.contains("*") || segment.contains("{")) {
+                    throw new IllegalArgumentException("Only literal, '*' and trailing '**' are supported: " + pattern);
+                } else {
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+            }
+            node.exact.add(rule);
+            return this;
+        }
+    }
+}
+```
+
+### 🔍 Why "first declared wins" still works
+
+Every rule remembers its **position** (`order`). The trie can find several matching rules
+(e.g. `/api/**` and `/api/admin/**`); we keep the one with the smallest `order` —
+exactly what the top-to-bottom chain would have picked.
+
+---
+
+## 🛡️ 2. `SecurityConfig.java`
+
+```java
+@Bean
+public TrieAuthorizationManager urlAuthorization() {
+    return TrieAuthorizationManager.builder()
+            .permitAll("/auth/**")
+            .permitAll("/.well-known/jwks.json")
+            .hasRole("/api/admin/**", "ADMIN")
+            .hasAnyRole("/api/user/**", "USER", "ADMIN")
+            .anyRequestAuthenticated()
+            .build();                              // 🌳 compiled once at startup
+}
+
+@Bean
+public SecurityFilterChain filterChain(HttpSecurity http, TrieAuthorizationManager urlAuthorization) throws Exception {
+    return http
+            .csrf().disable()
+            .authorizeHttpRequests(auth -> auth
+                .anyRequest().access(urlAuthorization)   // 👈 one entry, the trie does the rest
+            )
+            .userDetailsService(userDetailsService)
+            .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+            .build();
+}
+```
+
+> Patterns like `/api/{id}/x` or `*.html` aren't supported (the builder throws at startup — no silent surprises).
+> Use `*` for a single variable segment instead: `/api/persons/*/attachment`.
+
+---
+
+## 📊 3. Benchmark — `UrlAuthorizationBenchmark.java` (`src/test/java`)
+
+Compares the trie with Spring's own `RequestMatcherDelegatingAuthorizationManager` (what `requestMatchers(...)` builds).
+
+```java
+package com.example.demo.bench;
+
+import com.example.demo.config.TrieAuthorizationManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlAuthorizationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int rules;
+
+    RequestMatcherDelegatingAuthorizationManager chain;
+    TrieAuthorizationManager trie;
+    MockHttpServletRequest lastRuleRequest;       // worst case for the chain
+    final Supplier<Authentication> user = () -> UsernamePasswordAuthenticationToken.authenticated(
+            "user", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    @Setup
+    public void setup() {
+        RequestMatcherDelegatingAuthorizationManager.Builder chainBuilder =
+                RequestMatcherDelegatingAuthorizationManager.builder();
+        TrieAuthorizationManager.Builder trieBuilder = TrieAuthorizationManager.builder();
+
+        for (int i = 0; i < rules; i++) {
+            String pattern = "/api/service" + i + "/**";
+            chainBuilder.add(new AntPathRequestMatcher(pattern), AuthorityAuthorizationManager.hasRole("USER"));
+            trieBuilder.hasRole(pattern, "USER");
+        }
+        chainBuilder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+
+        chain = chainBuilder.build();
+        trie = trieBuilder.anyRequestAuthenticated().build();
+
+        lastRuleRequest = new MockHttpServletRequest("GET", "/api/service" + (rules - 1) + "/items/42");
+        lastRuleRequest.setServletPath(lastRuleRequest.getRequestURI());
+
+        // Sanity check: both give the same answer
+        if (chain().isGranted() != trie().isGranted()) throw new IllegalStateException("Decisions differ");
+    }
+
+    @Benchmark
+    public AuthorizationDecision chain() {
+        return chain.check(user, lastRuleRequest);
+    }
+
+    @Benchmark
+    public AuthorizationDecision trie() {
+        return trie.check(user, new RequestAuthorizationContext(lastRuleRequest));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(UrlAuthorizationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
+```
+
+> Needs `spring-test` (for `MockHttpServletRequest`) — already there via `spring-boot-starter-test`.
+
+Expected shape:
+
+| Rules | Chain (ns/op)        | Trie (ns/op)     |
+| ----- | -------------------- | ---------------- |
+| 10    | small                | small            |
+| 100   | ~10× the 10-rule run | ~same as 10      |
+| 1000  | ~100× the 10-rule run| ~same as 10      |
+
+Run it and put your real numbers in the table.
+
+---
+
+## ✅ Your Task
+
+1. Replace the `requestMatchers(...)` block with the trie and re-test all endpoints from `6_JWT_Auth`:
+   `/auth/login` (open), `/api/user/hello` (USER/ADMIN), `/api/admin/hello` (ADMIN only).
+2. Run the benchmark for 10 / 100 / 1000 rules.
+3. Add a rule `/api/admin/**` **twice** with different roles → the first one wins, like before.
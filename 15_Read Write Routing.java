@@ -0,0 +1,464 @@
+Read / Write DataSource Routing for PersonRepository
+
+Right now every `PersonRepository` call goes to one database:
+
+```properties
+spring.datasource.url=jdbc:h2:mem:testdb
+```
+
+Most traffic is **reads** (`getAll`, `getById`, search). Reads can go to **read replicas**
+(copies of the primary), so we add replicas instead of buying a bigger primary. 📈
+
+```
+               ┌── write / @Transactional ───────────► PRIMARY
+PersonController
+               └── @Transactional(readOnly = true) ──► REPLICA 1 / REPLICA 2 / ...
+                                                         (skipped if lagging too far behind)
+```
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `ReplicaRoutingDataSource` — picks primary or a replica per transaction
+2. ✅ Replica selection: `round-robin` or `least-connections`
+3. ✅ `ReplicaLagMonitor` — heartbeat row, replicas too far behind are skipped
+4. ✅ Falls back to the primary when no replica is healthy
+5. ✅ Local setup with several H2 pools
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.datasource.primary.url=jdbc:h2:mem:testdb
+app.datasource.replicas[0].url=jdbc:h2:mem:testdb
+app.datasource.replicas[1].url=jdbc:h2:mem:testdb
+app.datasource.replica-max-lag=5s
+app.datasource.replica-selection=round-robin
+
+# ⚠️ Required: one session (and its connection) per TRANSACTION, not per request
+spring.jpa.open-in-view=false
+```
+
+> Why `open-in-view=false`? By default Spring Boot keeps one `EntityManager` open for the whole
+> request — and with it the **first** physical connection it got. In `delete` the first call is the
+> read-only `existsById` → replica connection. `deleteById` then reuses that same connection →
+> the **write goes to the replica**. 💥 Without open-in-view every transaction picks its own connection.
+
+> 🧪 **Locally** all URLs point to the same in-memory `testdb` (same name = same DB inside one JVM),
+> but each gets its **own connection pool** (`primary`, `replica-0`, `replica-1`).
+> So you can see the routing in the pool stats/logs without setting up real replication.
+> In production the replica URLs point to real replica hosts.
+
+---
+
+## 🧾 2. `RoutingDataSourceProperties.java`
+
+```java
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource")
+public record RoutingDataSourceProperties(
+        Node primary,
+        List<Node> replicas,
+        Duration replicaMaxLag,
+        Selection replicaSelection) {
+
+    public record Node(String url, String username, String password) {
+    }
+
+    public enum Selection { ROUND_ROBIN, LEAST_CONNECTIONS }
+
+    public RoutingDataSourceProperties {
+        replicas = replicas == null ? List.of() : replicas;
+        replicaMaxLag = replicaMaxLag == null ? Duration.ofSeconds(5) : replicaMaxLag;
+        replicaSelection = replicaSelection == null ? Selection.ROUND_ROBIN : replicaSelection;
+    }
+}
+```
+
+> `round-robin` in the properties file binds to `ROUND_ROBIN` automatically (relaxed binding).
+
+---
+
+## 🔀 3. `ReplicaRoutingDataSource.java`
+
+```java
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final boolean[] healthy;                     // updated by ReplicaLagMonitor
+    private final RoutingDataSourceProperties.Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    RoutingDataSourceProperties.Selection selection) {
+        this.replicas = replicas;
+        this.healthy = new boolean[replicas.size()];
+        this.selection = selection;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            healthy[i] = true;
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;                              // ✍️ writes (and no transaction) → primary
+        }
+        int replica = selection == RoutingDataSourceProperties.Selection.LEAST_CONNECTIONS
+                ? leastConnections()
+                : roundRobin();
+        return replica >= 0 ? replica : PRIMARY;         // no healthy replica → primary
+    }
+
+    private int roundRobin() {
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(n, 1));
+        for (int i = 0; i < n; i++) {
+            int candidate = (start + i) % n;
+            if (healthy[candidate]) return candidate;
+        }
+        return -1;
+    }
+
+    private int leastConnections() {
+        int best = -1;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            if (!healthy[i]) continue;
+            HikariPoolMXBean pool = replicas.get(i).getHikariPoolMXBean();
+            int active = pool == null ? 0 : pool.getActiveConnections();   // null until the pool has started
+            if (active < bestActive) {
+                best = i;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    void setHealthy(int replica, boolean value) {
+        healthy[replica] = value;                        // plain write is fine: a stale read only delays the switch
+    }
+}
+```
+
+---
+
+## 💓 4. `ReplicaLagMonitor.java`
+
+The primary writes "now" into a heartbeat row every second.
+Each replica is asked "what heartbeat do you see?" → the difference is its lag.
+
+```java
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.List;
+
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final List<JdbcTemplate> replicas;
+    private final ReplicaRoutingDataSource routing;
+    private final long maxLagMillis;
+
+    public ReplicaLagMonitor(HikariDataSource primary, List<HikariDataSource> replicas,
+                             ReplicaRoutingDataSource routing, Duration maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = replicas.stream().map(JdbcTemplate::new).toList();
+        this.routing = routing;
+        this.maxLagMillis = maxLag.toMillis();
+
+        this.primary.execute("CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, ts BIGINT NOT NULL)");
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void check() {
+        long now = System.currentTimeMillis();
+        primary.update("MERGE INTO replication_heartbeat (id, ts) KEY (id) VALUES (1, ?)", now);
+
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean ok;
+            try {
+                Long seen = replicas.get(i).queryForObject("SELECT ts FROM replication_heartbeat WHERE id = 1", Long.class);
+                ok = seen != null && now - seen <= maxLagMillis;
+            } catch (Exception e) {
+                ok = false;                               // unreachable / table missing → skip it
+            }
+            routing.setHealthy(i, ok);
+            if (!ok) log.warn("Replica {} is lagging or down, reads go elsewhere", i);
+        }
+    }
+}
+```
+
+> `MERGE ... KEY (...)` is H2 syntax. On PostgreSQL use `INSERT ... ON CONFLICT (id) DO UPDATE`.
+
+---
+
+## 🏭 5. `DataSourceConfig.java`
+
+```java
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+public class DataSourceConfig {
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas = new ArrayList<>();
+    private final ReplicaRoutingDataSource routing;
+    private final RoutingDataSourceProperties props;
+
+    public DataSourceConfig(RoutingDataSourceProperties props) {
+        this.props = props;
+        this.primary = pool("primary", props.primary());
+        for (int i = 0; i < props.replicas().size(); i++) {
+            replicas.add(pool("replica-" + i, props.replicas().get(i)));
+        }
+        this.routing = new ReplicaRoutingDataSource(primary, replicas, props.replicaSelection());
+        this.routing.afterPropertiesSet();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        // ⚠️ Lazy proxy is REQUIRED: Spring marks the transaction read-only only AFTER it starts.
+        // The proxy delays getting the real connection until the first SQL statement,
+        // so the routing decision sees the correct readOnly flag.
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor() {
+        return new ReplicaLagMonitor(primary, replicas, routing, props.replicaMaxLag());
+    }
+
+    private static HikariDataSource pool(String name, RoutingDataSourceProperties.Node node) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName(name);
+        ds.setJdbcUrl(node.url());
+        ds.setUsername(node.username() == null ? "sa" : node.username());
+        ds.setPassword(node.password() == null ? "" : node.password());
+        return ds;
+    }
+}
+```
+
+> Our own `DataSource` bean → Spring Boot's `spring.datasource.*` auto-config backs off.
+
+---
+
+## 🌐 6. `PersonController` — mark the reads
+
+`SimpleJpaRepository` (behind `PersonRepository`) is already `@Transactional(readOnly = true)`
+for `findAll`/`findById`. We make it explicit on the controller and keep `update`
+(read + write) **entirely on the primary**:
+
+```java
+@GetMapping
+@Transactional(readOnly = true)                 // → replica
+public List<Person> getAll() {
+    return personRepo.findAll();
+}
+
+@GetMapping("/{id}")
+@Transactional(readOnly = true)                 // → replica
+public ResponseEntity<Person> getById(@PathVariable Long id) {
+    return personRepo.findById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+}
+
+@PutMapping("/{id}")
+@Transactional                                  // → primary, also for the findById inside
+public ResponseEntity<Person> update(@PathVariable Long id, @RequestBody Person newPerson) {
+    ...
+}
+
+@DeleteMapping("/{id}")
+@Transactional                                  // → primary: existsById + deleteById = ONE write
+public ResponseEntity<Void> delete(@PathVariable Long id) {
+    if (!personRepo.existsById(id)) return ResponseEntity.notFound().build();
+    personRepo.deleteById(id);
+    return ResponseEntity.noContent().build();
+}
+```
+
+(`org.springframework.transaction.annotation.Transactional`)
+
+> ⚠️ **Read-your-own-writes**: right after `POST`, a `GET` may hit a replica that doesn't have
+> the row yet (up to `replica-max-lag`). If a client needs it, let it read from the primary
+> (e.g. a method without `readOnly = true`).
+
+---
+
+## 🧪 7. Try It
+
+Enable Hikari pool logging:
+
+```properties
+logging.level.com.zaxxer.hikari.pool.HikariPool=DEBUG
+```
+
+| Action                         | Pool used                 |
+| ------------------------------ | ------------------------- |
+| `GET /api/persons` (×4)        | replica-0, replica-1, ... |
+| `POST /api/persons`            | primary                   |
+| `PUT /api/persons/1`           | primary                   |
+| `DELETE /api/persons/1`        | primary (check + delete)  |
+| Point `replicas[1].url` to `jdbc:h2:mem:stale` | replica-1 skipped (no heartbeat) → only replica-0 |
+| All replicas down              | reads fall back to primary |
+
+---
+
+## 🧪 8. `ReadWriteRoutingTest.java` (`src/test/java`)
+
+Primary and replica are two **separate** in-memory databases here, with no replication between them.
+So a write that lands on the wrong node is visible in the wrong place:
+
+```java
+package com.example.demo.config;
+
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.datasource.primary.url=jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replicas[0].url=jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+
+    private final JdbcTemplate primary = jdbc("rw-primary");
+    private final JdbcTemplate replica = jdbc("rw-replica");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonRepository personRepo;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    private Person alice;
+
+    @BeforeEach
+    void seed() {
+        alice = new Person();
+        alice.setName("Alice");
+        alice.setAge(22);
+        alice = personRepo.save(alice);                               // → primary
+
+        // "Replicate" by hand: same row on the replica, and a heartbeat that never lags
+        replica.execute("CREATE TABLE IF NOT EXISTS person (id BIGINT PRIMARY KEY, name VARCHAR(255), age INT NOT NULL)");
+        replica.execute("CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, ts BIGINT NOT NULL)");
+        replica.update("MERGE INTO person (id, name, age) KEY (id) VALUES (?, 'Alice', 22)", alice.getId());
+        replica.update("MERGE INTO replication_heartbeat (id, ts) KEY (id) VALUES (1, ?)", Long.MAX_VALUE);
+        lagMonitor.check();                                           // replica-0 healthy right now
+    }
+
+    @Test
+    @WithMockUser
+    void readsGoToTheReplica() throws Exception {
+        replica.update("UPDATE person SET name = 'Alice (replica)' WHERE id = ?", alice.getId());
+
+        mvc.perform(get("/api/persons/{id}", alice.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Alice (replica)")));
+    }
+
+    @Test
+    @WithMockUser
+    void deleteAfterReadOnlyCheckReachesThePrimary() throws Exception {
+        mvc.perform(delete("/api/persons/{id}", alice.getId()))
+                .andExpect(status().isNoContent());
+
+        assertThat(count(primary, alice.getId())).isZero();          // ✅ deleted where it matters
+        assertThat(count(replica, alice.getId())).isOne();           // replica untouched
+    }
+
+    private static long count(JdbcTemplate db, Long id) {
+        return db.queryForObject("SELECT COUNT(*) FROM person WHERE id = ?", Long.class, id);
+    }
+
+    private static JdbcTemplate jdbc(String name) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+}
+```
+
+> Remove `spring.jpa.open-in-view=false` **and** the `@Transactional` on `delete` →
+> `deleteAfterReadOnlyCheckReachesThePrimary` fails: the row is gone from the replica, not the primary.
+
+---
+
+## ✅ Your Task
+
+1. Add the 3 pools, call `GET /api/persons` a few times → reads rotate between replicas.
+2. Switch to `replica-selection=least-connections` and run a load test (e.g. `ab -c 20 -n 1000`).
+3. Point one replica at `jdbc:h2:mem:stale` → its reads stop after ≤ 1 s.
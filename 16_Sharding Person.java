@@ -0,0 +1,388 @@
+Horizontal Sharding of the Person Table
+
+Read replicas (`15_Read Write Routing`) help with **reads**. But when the `person` table itself is
+too big for one database (disk, index size, write load), we have to **split the rows**
+across several databases → **shards**.
+
+```
+                           ┌──► shard 0  (ids 1, 4, 7, ...)
+PersonController ──► PersonRepository ──► shard 1  (ids 2, 5, 8, ...)
+                           └──► shard 2  (ids 3, 6, 9, ...)
+```
+
+Rules:
+
+* ✍️ **save (new)** → pick a shard, that shard's sequence gives the id
+* 🎯 **findById / update / delete** → the id tells us the shard → **one** database
+* 🌐 **findAll / search / paging** → ask **all** shards in parallel (scatter), merge (gather)
+
+And the best part: `PersonController` doesn't change at all. ✅
+
+---
+
+## 🔢 1. How the id picks the shard
+
+Each shard has its own sequence, with a different **start** and the same **step** (= number of shards):
+
+| Shard | `START WITH` | `INCREMENT BY` | ids          |
+| ----- | ------------ | -------------- | ------------ |
+| 0     | 1            | 3              | 1, 4, 7, ... |
+| 1     | 2            | 3              | 2, 5, 8, ... |
+| 2     | 3            | 3              | 3, 6, 9, ... |
+
+So `shard = (id - 1) % 3`. No lookup table, no collisions between shards. 🎉
+
+> ⚠️ Changing the shard count later means moving rows. Plan ahead: start with e.g. 16 logical
+> shards on 2–3 physical databases (several `app.shards[...]` may point to the same server).
+
+---
+
+## ⚙️ 2. application.properties
+
+```properties
+app.shards[0].url=jdbc:h2:mem:shard0
+app.shards[1].url=jdbc:h2:mem:shard1
+app.shards[2].url=jdbc:h2:mem:shard2
+app.shards-query-timeout=2s
+# How many scatter-gathers may run at the same time (threads = this × shards)
+app.shards-scatter-concurrency=16
+```
+
+Three separate in-memory H2 databases → easy to test locally.
+
+---
+
+## 🗂️ 3. `PersonShards.java`
+
+```java
+package com.example.demo.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PersonShards {
+
+    @ConfigurationProperties(prefix = "app")
+    public record Properties(List<Shard> shards, Duration shardsQueryTimeout, Integer shardsScatterConcurrency) {
+        public record Shard(String url, String username, String password) {
+        }
+    }
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final ExecutorService scatter;
+    private final Duration timeout;
+
+    public PersonShards(Properties props) {
+        int count = props.shards().size();
+        int concurrency = props.shardsScatterConcurrency() == null ? 16 : props.shardsScatterConcurrency();
+        this.timeout = props.shardsQueryTimeout() == null ? Duration.ofSeconds(2) : props.shardsQueryTimeout();
+
+        // JDBC timeouts are whole seconds → round up. The DRIVER cancels the statement,
+        // so a timed-out query really stops and gives its thread + connection back
+        int queryTimeoutSeconds = (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+
+        for (int i = 0; i < count; i++) {
+            Properties.Shard s = props.shards().get(i);
+            HikariDataSource ds = new HikariDataSource();
+            ds.setPoolName("shard-" + i);
+            ds.setJdbcUrl(s.url());
+            ds.setUsername(s.username() == null ? "sa" : s.username());
+            ds.setPassword(s.password() == null ? "" : s.password());
+            ds.setMaximumPoolSize(concurrency);                // one connection per scatter thread of this shard
+            pools.add(ds);
+
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            jdbc.execute("CREATE TABLE IF NOT EXISTS person (id BIGINT PRIMARY KEY, name VARCHAR(255), age INT NOT NULL)");
+            jdbc.execute("CREATE SEQUENCE IF NOT EXISTS person_seq START WITH " + (i + 1) + " INCREMENT BY " + count);
+            jdbc.setQueryTimeout(queryTimeoutSeconds);
+            shards.add(jdbc);
+        }
+        // Each request needs one thread PER SHARD at the same time.
+        // `count` threads would mean one scatter-gather for the whole server, the rest queue up.
+        this.scatter = Executors.newFixedThreadPool(concurrency * count);
+    }
+
+    public int count() {
+        return shards.size();
+    }
+
+    public JdbcTemplate shard(int index) {
+        return shards.get(index);
+    }
+
+    public JdbcTemplate shardFor(long id) {
+        return shards.get((int) Math.floorMod(id - 1, (long) shards.size()));
+    }
+
+    public List<JdbcTemplate> all() {
+        return shards;
+    }
+
+    public ExecutorService scatterExecutor() {
+        return scatter;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @PreDestroy
+    void close() {
+        scatter.shutdown();
+        pools.forEach(HikariDataSource::close);
+    }
+}
+```
+
+```java
+@Configuration
+@EnableConfigurationProperties(PersonShards.Properties.class)
+public class ShardingConfig {
+
+    @Bean
+    public PersonShards personShards(PersonShards.Properties props) {
+        return new PersonShards(props);
+    }
+}
+```
+
+---
+
+## 🧩 4. Make `PersonRepository` shard-aware (without touching the controller)
+
+Spring Data lets us plug a **custom fragment** into a repository. If the fragment has a method
+with the same signature as a built-in one (`findAll`, `save`, ...), **the fragment wins**.
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.Person;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PersonRepository extends JpaRepository<Person, Long>, ShardedPersonOperations {
+}
+```
+
+### `ShardedPersonOperations.java`
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.Person;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ShardedPersonOperations {
+
+    // Same signatures as JpaRepository → these replace the JPA versions
+    List<Person> findAll();
+
+    Optional<Person> findById(Long id);
+
+    <S extends Person> S save(S person);
+
+    boolean existsById(Long id);
+
+    void deleteById(Long id);
+
+    // Extra cross-shard queries
+    List<Person> findPage(long afterId, int size);
+
+    List<Person> searchByName(String part, int limit);
+}
+```
+
+### `ShardedPersonOperationsImpl.java`
+
+The `Impl` suffix is how Spring Data finds the implementation.
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.Person;
+import com.example.demo.sharding.PersonShards;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ShardedPersonOperationsImpl implements ShardedPersonOperations {
+
+    private static final RowMapper<Person> ROW = (rs, i) -> {
+        Person p = new Person();
+        p.setId(rs.getLong("id"));
+        p.setName(rs.getString("name"));
+        p.setAge(rs.getInt("age"));
+        return p;
+    };
+
+    private final PersonShards shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardedPersonOperationsImpl(PersonShards shards) {
+        this.shards = shards;
+    }
+
+    // 🎯 ---------- single-shard operations ----------
+
+    @Override
+    public Optional<Person> findById(Long id) {
+        return shards.shardFor(id)
+                .query("SELECT id, name, age FROM person WHERE id = ?", ROW, id)
+                .stream().findFirst();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        Integer n = shards.shardFor(id).queryForObject("SELECT COUNT(*) FROM person WHERE id = ?", Integer.class, id);
+        return n != null && n > 0;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        shards.shardFor(id).update("DELETE FROM person WHERE id = ?", id);
+    }
+
+    @Override
+    public <S extends Person> S save(S person) {
+        if (person.getId() == null) {
+            // ✍️ New row: spread inserts evenly, the shard's own sequence gives the id
+            JdbcTemplate shard = shards.shard(Math.floorMod(nextShard.getAndIncrement(), shards.count()));
+            Long id = shard.queryForObject("SELECT NEXT VALUE FOR person_seq", Long.class);
+            shard.update("INSERT INTO person (id, name, age) VALUES (?, ?, ?)", id, person.getName(), person.getAge());
+            person.setId(id);
+        } else {
+            JdbcTemplate shard = shards.shardFor(person.getId());
+            int updated = shard.update("UPDATE person SET name = ?, age = ? WHERE id = ?",
+                    person.getName(), person.getAge(), person.getId());
+            if (updated == 0) {
+                shard.update("INSERT INTO person (id, name, age) VALUES (?, ?, ?)",
+                        person.getId(), person.getName(), person.getAge());
+            }
+        }
+        return person;
+    }
+
+    // 🌐 ---------- scatter-gather operations ----------
+
+    @Override
+    public List<Person> findAll() {
+        return gather(jdbc -> jdbc.query("SELECT id, name, age FROM person ORDER BY id", ROW), Integer.MAX_VALUE);
+    }
+
+    /** Keyset paging: "give me `size` persons with id > afterId". No deep OFFSET on any shard. */
+    @Override
+    public List<Person> findPage(long afterId, int size) {
+        return gather(jdbc -> jdbc.query(
+                "SELECT id, name, age FROM person WHERE id > ? ORDER BY id LIMIT ?", ROW, afterId, size), size);
+    }
+
+    @Override
+    public List<Person> searchByName(String part, int limit) {
+        return gather(jdbc -> jdbc.query(
+                "SELECT id, name, age FROM person WHERE LOWER(name) LIKE ? ORDER BY id LIMIT ?",
+                ROW, "%" + part.toLowerCase() + "%", limit), limit);
+    }
+
+    /**
+     * Runs the query on every shard in parallel, then merges by id.
+     * Each shard returns at most `limit` rows, so the merge handles at most shards × limit rows.
+     */
+    private List<Person> gather(Function<JdbcTemplate, List<Person>> query, int limit) {
+        List<Future<List<Person>>> futures = new ArrayList<>();
+        for (JdbcTemplate shard : shards.all()) {
+            futures.add(shards.scatterExecutor().submit(() -> query.apply(shard)));
+        }
+
+        List<Person> merged = new ArrayList<>();
+        long deadline = System.nanoTime() + shards.timeout().toNanos();
+        try {
+            for (Future<List<Person>> f : futures) {
+                merged.addAll(f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // submit() futures (not CompletableFuture): cancel(true) drops tasks still in the queue and
+            // interrupts running ones. A statement already inside the driver stops at its query timeout.
+            futures.forEach(f -> f.cancel(true));
+            throw new DataAccessResourceFailureException("Shard query failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while querying shards", e);
+        }
+
+        merged.sort(Comparator.comparing(Person::getId));
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+}
+```
+
+> We fail the **whole** request if one shard is down or slow — returning "some" persons silently
+> would look like data loss to the client. 🙅
+
+---
+
+## 🌐 5. New endpoints (optional)
+
+`getAll`, `getById`, `create`, `update`, `delete` already work unchanged. For big tables add:
+
+```java
+@GetMapping("/page")
+public List<Person> page(@RequestParam(defaultValue = "0") long afterId,
+                         @RequestParam(defaultValue = "50") int size) {
+    return personRepo.findPage(afterId, Math.min(size, 500));
+}
+
+@GetMapping("/search/like")
+public List<Person> searchLike(@RequestParam String q, @RequestParam(defaultValue = "50") int limit) {
+    return personRepo.searchByName(q, Math.min(limit, 500));
+}
+```
+
+> Not `/search`: that path belongs to the trigram index from `23_Trigram Name Search`.
+
+Next page = call again with `afterId` = last id of the previous page.
+
+---
+
+## 🔍 How Each Call Is Routed
+
+| Controller method | Repository call         | Shards hit          |
+| ----------------- | ----------------------- | ------------------- |
+| `getById(7)`      | `findById(7)`           | shard 0 only        |
+| `create(...)`     | `save(new)`             | next shard (round-robin) |
+| `update(5, ...)`  | `findById` + `save`     | shard 1 only        |
+| `delete(9)`       | `existsById` + `deleteById` | shard 2 only    |
+| `getAll()`        | `findAll()`             | all, in parallel    |
+| `page` / `searchLike` | `findPage` / `searchByName` | all, in parallel |
+
+> The JPA `@Entity Person` stays (handy for the H2 console & other chapters), but its rows
+> now live in the shard databases, not in `testdb`.
+
+---
+
+## ✅ Your Task
+
+1. Configure 3 shards, create 9 persons via `POST /api/persons`.
+2. Open the H2 console for `jdbc:h2:mem:shard0` → you see ids 1, 4, 7.
+3. `GET /api/persons` → all 9 persons, sorted by id.
+4. `GET /api/persons/page?afterId=3&size=4` → ids 4, 5, 6, 7.
@@ -0,0 +1,467 @@
+Transactional Outbox + Server-Sent Events Change Feed
+
+Today clients find changes like this:
+
+```
+every 5 s:  GET /api/persons   → 10,000 persons → "did anything change?" → usually no 🙃
+```
+
+That polling is most of our read load. Instead the server should **push** only what changed:
+
+```
+GET /api/persons/changes   (Server-Sent Events, stays open)
+
+id: 41
+event: UPDATED
+data: {"id":7,"name":"Alice B","age":31}
+
+id: 42
+event: DELETED
+data: {"id":3}
+```
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `person_change` **outbox** table — written in the **same transaction** as the person row
+2. ✅ Offsets (`id`) handed out in **commit order** → no event can be skipped
+3. ✅ `PersonChangePublisher` — one background thread reads new events, pushes them to all clients
+4. ✅ `GET /api/persons/changes` (SSE) with **resume** via `Last-Event-ID` / `?since=`
+5. ✅ Old events cleaned up; a client that is too far behind gets a `RESET` event
+
+### 🤔 Why an outbox and not "send after save"?
+
+| Approach                               | Problem                                           |
+| -------------------------------------- | ------------------------------------------------- |
+| Save, then push to clients             | Crash in between → change saved, event lost       |
+| Push, then save                        | Save fails → clients saw a change that never happened |
+| **Outbox**: save row + event in 1 tx   | Both or neither. ✅ Publisher sends later, from the table |
+
+---
+
+## 🧱 1. Entities
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "person_change", indexes = @Index(name = "ix_person_change_created", columnList = "createdAt"))
+public class PersonChange {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @Id
+    private Long id;                       // the offset — assigned by PersonChangeLog, not generated
+
+    private Long personId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private Type type;
+
+    @Column(length = 2000)
+    private String payload;                // JSON sent to clients
+
+    private Instant createdAt;
+
+    // Getters and Setters
+}
+```
+
+A one-row counter. Updating it **locks** the row until commit → offsets follow commit order:
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class PersonChangeCounter {
+
+    @Id
+    private Long id;                       // always 1
+
+    private long lastOffset;
+
+    // Getters and Setters
+}
+```
+
+---
+
+## 📦 2. `PersonChangeRepository`
+
+```java
+package com.example.demo.repository;
+
+import com.example.demo.model.PersonChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PersonChangeRepository extends JpaRepository<PersonChange, Long> {
+
+    List<PersonChange> findTop500ByIdGreaterThanOrderByIdAsc(Long offset);
+
+    @Query("select coalesce(min(c.id), 0) from PersonChange c")
+    long oldestOffset();
+
+    @Query("select coalesce(max(c.id), 0) from PersonChange c")
+    long newestOffset();
+
+    @Modifying
+    @Query("update PersonChangeCounter c set c.lastOffset = c.lastOffset + 1 where c.id = 1")
+    int bumpOffset();
+
+    @Query("select c.lastOffset from PersonChangeCounter c where c.id = 1")
+    long currentOffset();
+
+    @Modifying
+    @Query("delete from PersonChange c where c.createdAt < :before")
+    int deleteOlderThan(Instant before);
+}
+```
+
+---
+
+## ✍️ 3. `PersonChangeLog` — write the event
+
+```java
+package com.example.demo.service;
+
+import com.example.demo.model.Person;
+import com.example.demo.model.PersonChange;
+import com.example.demo.model.PersonChangeCounter;
+import com.example.demo.repository.PersonChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Service
+public class PersonChangeLog {
+
+    @Autowired
+    private PersonChangeRepository changes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void createCounter() {
+        if (em.find(PersonChangeCounter.class, 1L) == null) {
+            PersonChangeCounter counter = new PersonChangeCounter();
+            counter.setId(1L);
+            counter.setLastOffset(changes.newestOffset());
+            em.persist(counter);
+        }
+    }
+
+    /** Must run INSIDE the caller's transaction — that's the whole point of an outbox. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(PersonChange.Type type, Person person) {
+        changes.bumpOffset();                        // 🔒 row lock held until commit
+        long offset = changes.currentOffset();
+
+        PersonChange change = new PersonChange();
+        change.setId(offset);
+        change.setPersonId(person.getId());
+        change.setType(type);
+        change.setPayload(type == PersonChange.Type.DELETED ? "{\"id\":" + person.getId() + "}" : toJson(person));
+        change.setCreatedAt(Instant.now());
+        changes.save(change);
+    }
+
+    private String toJson(Person person) {
+        try {
+            return objectMapper.writeValueAsString(person);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
+```
+
+> 🔒 The counter lock means person **writes** queue up for a moment at commit time.
+> That's the price for a gap-free feed. Call `record(...)` as the **last** step so the lock is short.
+>
+> ⚠️ With sharding (`16_Sharding Person`) the outbox must live in the **same database** as the row,
+> i.e. one outbox per shard.
+
+---
+
+## 🌐 4. `PersonController` — write + record in one transaction
+
+```java
+@Autowired
+private PersonChangeLog changeLog;
+
+@PostMapping
+@Transactional
+public ResponseEntity<Person> create(@RequestBody Person person) {
+    Person saved = personRepo.save(person);
+    changeLog.record(PersonChange.Type.CREATED, saved);
+    return new ResponseEntity<>(saved, HttpStatus.CREATED);
+}
+
+@PutMapping("/{id}")
+@Transactional
+public ResponseEntity<Person> update(@PathVariable Long id, @RequestBody Person newPerson) {
+    return personRepo.findById(id)
+            .map(existing -> {
+                existing.setName(newPerson.getName());
+                existing.setAge(newPerson.getAge());
+                Person saved = personRepo.save(existing);
+                changeLog.record(PersonChange.Type.UPDATED, saved);
+                return ResponseEntity.ok(saved);
+            })
+            .orElse(ResponseEntity.notFound().build());
+}
+
+@DeleteMapping("/{id}")
+@Transactional
+public ResponseEntity<Void> delete(@PathVariable Long id) {
+    return personRepo.findById(id)
+            .map(existing -> {
+                personRepo.delete(existing);
+                changeLog.record(PersonChange.Type.DELETED, existing);
+                return ResponseEntity.noContent().<Void>build();
+            })
+            .orElse(ResponseEntity.notFound().build());
+}
+
+@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                          @RequestParam(required = false) Long since) {
+    long from = lastEventId != null ? lastEventId : since != null ? since : changePublisher.currentOffset();
+    return changePublisher.subscribe(from);
+}
+```
+
+> No `since` → the client starts "from now". Browsers' `EventSource` resends `Last-Event-ID`
+> automatically after a reconnect → **resume for free**.
+
+### ⚠️ Keep the stream out of `ZstdCompressionFilter`
+
+The zstd filter from `9_Binary Formats and Compression` is mapped to `/api/persons/*` and **buffers**
+the whole body in a `ContentCachingResponseWrapper` before compressing it. An SSE response never ends,
+and the wrapper's `flushBuffer()` doesn't flush → a client sending `Accept-Encoding: zstd` gets
+**no events at all**. Skip streams in `shouldNotFilter`:
+
+```java
+// Responses that must reach the client while they are being written — never buffer them
+private static final List<String> STREAMING_PATHS = List.of("/api/persons/changes");
+
+@Override
+protected boolean shouldNotFilter(HttpServletRequest request) {
+    String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (accept == null || !accept.contains("zstd")) return true;
+
+    String acceptType = request.getHeader(HttpHeaders.ACCEPT);
+    return (acceptType != null && acceptType.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+            || STREAMING_PATHS.contains(request.getRequestURI());
+}
+```
+
+(`java.util.List`, `org.springframework.http.MediaType`)
+
+---
+
+## 📡 5. `PersonChangePublisher.java`
+
+One scheduler thread does all the reading and sending → no two threads ever write to the same emitter.
+
+```java
+package com.example.demo.service;
+
+import com.example.demo.model.PersonChange;
+import com.example.demo.repository.PersonChangeRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Component
+public class PersonChangePublisher {
+
+    private static final int RECENT_EVENTS = 10_000;
+
+    @Autowired
+    private PersonChangeRepository changes;
+
+    @Value("${app.changes.retention:7d}")
+    private Duration retention;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<PersonChange> recent = new ArrayDeque<>();   // only touched by publish()
+    private volatile long lastFetched;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        long cursor;                                  // last offset this client has seen
+
+        Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        lastFetched = changes.newestOffset();
+    }
+
+    public long currentOffset() {
+        return lastFetched;
+    }
+
+    public SseEmitter subscribe(long since) {
+        SseEmitter emitter = new SseEmitter(Duration.ofMinutes(30).toMillis());   // client reconnects after
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;                               // catch-up happens on the next publish() tick
+    }
+
+    @Scheduled(fixedDelayString = "${app.changes.poll-ms:500}")
+    public void publish() {
+        // 1️⃣ One query for everybody
+        for (PersonChange c : changes.findTop500ByIdGreaterThanOrderByIdAsc(lastFetched)) {
+            recent.addLast(c);
+            if (recent.size() > RECENT_EVENTS) recent.removeFirst();
+            lastFetched = c.getId();
+        }
+        // 2️⃣ Fan out
+        for (Subscriber s : subscribers) {
+            deliver(s);
+        }
+    }
+
+    private void deliver(Subscriber s) {
+        try {
+            if (s.cursor >= lastFetched) return;
+
+            Iterable<PersonChange> source;
+            if (!recent.isEmpty() && s.cursor >= recent.peekFirst().getId() - 1) {
+                source = recent;                      // ⚡ normal case: from memory
+            } else if (s.cursor < changes.oldestOffset() - 1) {
+                // 🧹 Events were already cleaned up → client must reload the full list
+                s.emitter.send(SseEmitter.event().name("RESET").data("{}"));
+                s.cursor = lastFetched;
+                return;
+            } else {
+                source = changes.findTop500ByIdGreaterThanOrderByIdAsc(s.cursor);   // slow client catching up
+            }
+
+            for (PersonChange c : source) {
+                if (c.getId() <= s.cursor) continue;
+                if (c.getId() > lastFetched) break;
+                s.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(c.getId()))
+                        .name(c.getType().name())
+                        .data(c.getPayload()));
+                s.cursor = c.getId();
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(s);                    // client went away
+        }
+    }
+
+    // 💓 Keeps proxies/load balancers from closing idle connections
+    @Scheduled(fixedDelay = 15_000)
+    public void heartbeat() {
+        for (Subscriber s : subscribers) {
+            try {
+                s.emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(s);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    @Transactional
+    public void cleanup() {
+        changes.deleteOlderThan(Instant.now().minus(retention));
+    }
+}
+```
+
+> `@EnableScheduling` is needed (already added in `8_Scalable User Store`).
+> `heartbeat()` and `publish()` run on the same scheduler thread by default (pool size 1),
+> so sends never overlap. Don't raise `spring.task.scheduling.pool.size` without adding a lock.
+
+---
+
+## 🧪 6. Try It
+
+```bash
+# Terminal 1 – listen
+curl -N -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/changes
+
+# Terminal 2 – change something
+curl -X POST -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+     -d '{"name":"Alice","age":30}' http://localhost:8080/api/persons
+```
+
+Terminal 1 prints:
+
+```
+id:1
+event:CREATED
+data:{"id":1,"name":"Alice","age":30}
+```
+
+Resume after a disconnect:
+
+```bash
+curl -N -H "Last-Event-ID: 1" -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/changes
+```
+
+In the browser:
+
+```javascript
+const source = new EventSource("/api/persons/changes?since=0");
+source.addEventListener("CREATED", e => console.log("new", JSON.parse(e.data)));
+source.addEventListener("RESET", () => reloadEverything());
+```
+
+---
+
+## ✅ Your Task
+
+1. Open two listeners, create / update / delete persons → both get every event, in order.
+2. Stop a listener, make 3 changes, reconnect with `Last-Event-ID` → you get exactly those 3.
+3. Throw an exception in `create` **after** `save` → no person **and** no event. ✅ (same transaction)
@@ -0,0 +1,455 @@
+Bulk Import / Export of Persons (CSV / NDJSON)
+
+Loading 1,000,000 persons today:
+
+```
+1,000,000 × POST /api/persons   → 1,000,000 HTTP requests + 1,000,000 single INSERTs 🐌
+```
+
+Dumping them:
+
+```
+GET /api/persons   → findAll() → 1,000,000 Person objects in the heap at once → 💥 OutOfMemoryError
+```
+
+We want both to run at **constant memory**, no matter how many rows.
+
+---
+
+## 🎯 What We'll Build
+
+| Endpoint                                  | How                                                           |
+| ----------------------------------------- | ------------------------------------------------------------- |
+| `POST /api/persons/import` (CSV / NDJSON) | read the upload line by line → JDBC **batches** of 1,000      |
+| `GET /api/persons/export?format=csv`      | DB **cursor** → temp file → **sendfile / `transferTo`** (zero-copy) |
+
+Formats:
+
+```
+# CSV (text/csv)                      # NDJSON (application/x-ndjson) — one JSON per line
+id,name,age                           {"id":1,"name":"Alice","age":30}
+1,Alice,30                            {"id":2,"name":"Bob","age":15}
+3,"Smith, John",42
+```
+
+Export writes exactly this. Import reads the **header** to find `name` and `age` (`id` is optional
+and ignored — the database gives new ids) → every export file can be imported again. 🔁
+No header → the columns are `name,age`.
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.bulk.batch-size=1000
+app.bulk.export-dir=${java.io.tmpdir}/person-exports
+# H2: stream query results instead of loading them all
+spring.datasource.url=jdbc:h2:mem:testdb;LAZY_QUERY_EXECUTION=1
+```
+
+---
+
+## 📥 2. `PersonImporter.java`
+
+```java
+package com.example.demo.bulk;
+
+import com.example.demo.model.Person;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class PersonImporter {
+
+    private static final String INSERT = "INSERT INTO person (name, age) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.bulk.batch-size:1000}")
+    private int batchSize;
+
+    public record Result(long imported, Long failedAtLine, String error) {}
+
+    public Result importCsv(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+        List<Person> batch = new ArrayList<>(batchSize);     // 🧠 the ONLY thing growing in memory
+        long imported = 0;
+        long lineNo = 0;
+        int nameCol = 0;                                     // no header → name,age
+        int ageCol = 1;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            long recordLine = lineNo;
+            while (Csv.isOpen(line)) {                       // quoted field with a line break inside
+                String more = reader.readLine();
+                if (more == null) return new Result(imported + flush(batch), recordLine, "Unclosed quote");
+                line = line + "\n" + more;                  // readLine() ate the break; \r\n comes back as \n
+                lineNo++;
+            }
+            if (line.isBlank()) continue;
+            if (recordLine == 1) {
+                List<String> header = Csv.split(line);
+                if (header.contains("name")) {               // header, e.g. "id,name,age" from our export
+                    nameCol = header.indexOf("name");
+                    ageCol = header.indexOf("age");
+                    if (ageCol < 0) return new Result(0, lineNo, "Header has no age column");
+                    continue;
+                }
+            }
+            try {
+                List<String> fields = Csv.split(line);
+                Person p = new Person();
+                p.setName(fields.get(nameCol));
+                p.setAge(Integer.parseInt(fields.get(ageCol).trim()));
+                batch.add(p);
+            } catch (RuntimeException e) {
+                return new Result(imported + flush(batch), recordLine, e.getMessage());
+            }
+            if (batch.size() == batchSize) imported += flush(batch);
+        }
+        return new Result(imported + flush(batch), null, null);
+    }
+
+    public Result importNdjson(InputStream body) throws IOException {
+        List<Person> batch = new ArrayList<>(batchSize);
+        long imported = 0;
+
+        try (MappingIterator<Person> it = objectMapper.readerFor(Person.class).readValues(body)) {
+            while (true) {
+                try {
+                    if (!it.hasNextValue()) break;           // reads ahead → can throw on a broken line too
+                    batch.add(it.nextValue());
+                } catch (IOException | RuntimeException e) {
+                    // JsonParseException / InvalidFormatException are IOExceptions → still 422, not 500.
+                    // The parser knows the real line (blank lines included).
+                    long lineNo = it.getParser().currentLocation().getLineNr();
+                    return new Result(imported + flush(batch), lineNo, e.getMessage());
+                }
+                if (batch.size() == batchSize) imported += flush(batch);
+            }
+        }
+        return new Result(imported + flush(batch), null, null);
+    }
+
+    // One round trip for 1,000 rows; each batch commits on its own → no giant transaction
+    private long flush(List<Person> batch) {
+        if (batch.isEmpty()) return 0;
+        jdbc.batchUpdate(INSERT, batch, batch.size(), (ps, p) -> {
+            ps.setString(1, p.getName());
+            ps.setInt(2, p.getAge());
+        });
+        int n = batch.size();
+        batch.clear();                                       // reuse the same list
+        return n;
+    }
+}
+```
+
+> ⚠️ Batches commit one by one. If line 500,001 is broken, the first 500,000 rows **stay**.
+> The response tells the client where it stopped, so it can fix the file and resume from there.
+
+> A name with a line break is exported inside quotes over two lines. `readLine()` alone would cut
+> that record in half → the importer keeps reading while a quote is still open.
+
+### `Csv.java` — tiny CSV splitter (quotes + `""` escapes)
+
+```java
+package com.example.demo.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class Csv {
+
+    private Csv() {
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');                     // "" inside quotes → "
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    /** Odd number of quotes → a quoted field is still open and goes on in the next line. */
+    static boolean isOpen(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') quotes++;             // "" escapes count 2 → parity unchanged
+        }
+        return (quotes & 1) == 1;
+    }
+
+    static String escape(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
+```
+
+---
+
+## 📤 3. `PersonExporter.java`
+
+```java
+package com.example.demo.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+@Component
+public class PersonExporter {
+
+    private static final String SELECT = "SELECT id, name, age FROM person ORDER BY id";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.bulk.export-dir:${java.io.tmpdir}/person-exports}")
+    private Path exportDir;
+
+    public Path exportCsv() throws IOException {
+        Path file = newFile(".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("id,name,age\n");
+            stream(rs -> {
+                try {
+                    out.write(Long.toString(rs.getLong(1)));
+                    out.write(',');
+                    out.write(Csv.escape(rs.getString(2)));
+                    out.write(',');
+                    out.write(Integer.toString(rs.getInt(3)));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return file;
+    }
+
+    public Path exportNdjson() throws IOException {
+        Path file = newFile(".ndjson");
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(Files.newOutputStream(file))) {
+            gen.setRootValueSeparator(null);
+            stream(rs -> {
+                try {
+                    gen.writeStartObject();
+                    gen.writeNumberField("id", rs.getLong(1));
+                    gen.writeStringField("name", rs.getString(2));
+                    gen.writeNumberField("age", rs.getInt(3));
+                    gen.writeEndObject();
+                    gen.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return file;
+    }
+
+    // 🌊 Row by row from a DB cursor — never a List of all persons
+    private void stream(RowCallbackHandler handler) {
+        JdbcTemplate cursor = new JdbcTemplate(jdbc.getDataSource());
+        cursor.setFetchSize(1000);
+        cursor.query(SELECT, handler);
+    }
+
+    private Path newFile(String suffix) throws IOException {
+        Files.createDirectories(exportDir);
+        return Files.createTempFile(exportDir, "persons-", suffix);
+    }
+
+    // 🧹 Files are sent AFTER the controller returns (sendfile) → delete them later, not right away
+    @Scheduled(fixedDelay = 600_000)
+    public void cleanup() throws IOException {
+        if (!Files.isDirectory(exportDir)) return;
+        FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofMinutes(10)));
+        try (Stream<Path> files = Files.list(exportDir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(f).compareTo(cutoff) < 0) Files.deleteIfExists(f);
+            }
+        }
+    }
+}
+```
+
+---
+
+## 🌐 4. `PersonBulkController.java`
+
+```java
+package com.example.demo.controller;
+
+import com.example.demo.bulk.PersonExporter;
+import com.example.demo.bulk.PersonImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@RestController
+@RequestMapping("/api/persons")
+public class PersonBulkController {
+
+    @Autowired
+    private PersonImporter importer;
+
+    @Autowired
+    private PersonExporter exporter;
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<PersonImporter.Result> importCsv(InputStream body) throws IOException {
+        return result(importer.importCsv(body));          // raw body stream — nothing buffered by Spring
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<PersonImporter.Result> importNdjson(InputStream body) throws IOException {
+        return result(importer.importNdjson(body));
+    }
+
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "csv") String format,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!format.equals("csv") && !format.equals("ndjson")) {
+            // Never echo an unknown value into Content-Disposition
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or ndjson");
+            return;
+        }
+        boolean csv = format.equals("csv");
+        Path file = csv ? exporter.exportCsv() : exporter.exportNdjson();
+        long size = file.toFile().length();
+
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"persons." + format + "\"");
+        response.setContentLengthLong(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // 🚀 Tomcat NIO: the kernel copies file → socket after we return (true zero-copy)
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", size);
+            return;
+        }
+
+        // Fallback (other servers / HTTPS): FileChannel.transferTo in large chunks
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private static ResponseEntity<PersonImporter.Result> result(PersonImporter.Result result) {
+        return ResponseEntity.status(result.failedAtLine() == null ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(result);
+    }
+}
+```
+
+> 🔍 Tomcat's sendfile only kicks in for plain HTTP on the NIO/NIO2 connector (default in Spring Boot)
+> and for responses ≥ 48 KB. Over HTTPS the bytes must be encrypted in user space, so the fallback runs.
+>
+> ⚠️ Rows imported in bulk skip the change feed from `17_Outbox and SSE Change Feed`.
+> Tell listening clients to reload (e.g. record one `RESET`-style event after the import).
+
+---
+
+## 🧪 5. Try It
+
+```bash
+# 1M rows test file
+python3 -c "print('name,age'); [print(f'Person {i},{i % 90}') for i in range(1_000_000)]" > persons.csv
+
+time curl -X POST -H "Authorization: Bearer $TOKEN" -H "Content-Type: text/csv" \
+     --data-binary @persons.csv http://localhost:8080/api/persons/import
+# → {"imported":1000000,"failedAtLine":null,"error":null}
+
+time curl -H "Authorization: Bearer $TOKEN" -o out.csv "http://localhost:8080/api/persons/export?format=csv"
+```
+
+Watch the heap while it runs (`jcmd <pid> GC.heap_info` or VisualVM) → flat line, no spike. 📉
+
+---
+
+## ✅ Your Task
+
+1. Import 1M rows as CSV, then the same as NDJSON. Compare times.
+2. Put a broken line (`Bob,abc`) in the middle → you get **422** with the line number.
+3. Export with `format=csv` and `format=ndjson`, re-import each file into a fresh DB → same row count.
+4. `GET /api/persons/export?format=xml` → **400**.
@@ -0,0 +1,316 @@
+Persistent H2 + Schema Migrations + Snapshot / Restore
+
+From `4_Spring Boot REST API — Full CRUD`:
+
+```properties
+spring.datasource.url=jdbc:h2:mem:testdb
+spring.jpa.hibernate.ddl-auto=update
+```
+
+* `mem:` → every restart starts **empty** 😢
+* `ddl-auto=update` → Hibernate guesses schema changes at every boot (slow, never drops/renames, risky)
+
+We switch to:
+
+1. ✅ **File-based H2** (MVStore engine) → data survives restarts
+2. ✅ **Flyway** versioned migrations → schema changes are real, reviewed SQL files
+3. ✅ **Snapshot** (`BACKUP TO`) → one compact `.zip` of the whole DB file
+4. ✅ **Restore on boot** → a new node copies the snapshot in place **before** the DataSource starts
+   → boots in seconds instead of replaying millions of inserts
+
+---
+
+## 📦 1. Dependency (`pom.xml`)
+
+```xml
+<!-- version managed by Spring Boot -->
+<dependency>
+    <groupId>org.flywaydb</groupId>
+    <artifactId>flyway-core</artifactId>
+</dependency>
+```
+
+---
+
+## ⚙️ 2. application.properties
+
+```properties
+spring.datasource.url=jdbc:h2:file:./data/demo
+spring.datasource.username=sa
+spring.datasource.password=
+
+# Flyway owns the schema now; Hibernate only checks it matches the entities
+spring.jpa.hibernate.ddl-auto=validate
+spring.flyway.enabled=true
+
+app.snapshot.dir=./snapshots
+# Only on NEW nodes: where to get the starting data from (file:, classpath:, http(s):)
+#app.snapshot.restore-from=file:/shared/snapshots/latest.zip
+```
+
+> `jdbc:h2:file:./data/demo` → creates `./data/demo.mv.db` (MVStore, H2's default storage engine).
+> Add `data/` and `snapshots/` to `.gitignore`.
+
+---
+
+## 🗂️ 3. Migrations — `src/main/resources/db/migration/`
+
+Flyway runs every `V<n>__<name>.sql` **once**, in order, and remembers it in `flyway_schema_history`.
+Column names follow Spring Boot's naming (`tokenHash` → `token_hash`).
+
+`V1__person.sql`
+
+```sql
+CREATE TABLE person (
+    id   BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255),
+    age  INT NOT NULL
+);
+```
+
+`V2__users.sql` (the `User` entity from `6_JWT_Auth`)
+
+```sql
+-- "USER" is a reserved word in H2 2.x → the entity needs @Table(name = "users")
+CREATE TABLE users (
+    id       BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role     VARCHAR(50)
+);
+CREATE UNIQUE INDEX ux_users_username ON users (username);
+```
+
+`V3__refresh_token.sql` (`11_Refresh Tokens`)
+
+```sql
+CREATE TABLE refresh_token (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash VARCHAR(43) NOT NULL,
+    family     VARCHAR(36) NOT NULL,
+    username   VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked    BOOLEAN NOT NULL
+);
+CREATE UNIQUE INDEX ux_refresh_token_hash ON refresh_token (token_hash);
+CREATE INDEX ix_refresh_token_expires ON refresh_token (expires_at);
+```
+
+`V4__revoked_token.sql` (`13_Token Revocation`)
+
+```sql
+CREATE TABLE revoked_token (
+    id         BIGINT PRIMARY KEY,
+    jti        VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX ix_revoked_token_expires ON revoked_token (expires_at);
+
+CREATE TABLE revoked_token_counter (
+    id      BIGINT PRIMARY KEY,
+    last_id BIGINT NOT NULL
+);
+INSERT INTO revoked_token_counter (id, last_id) VALUES (1, 0);
+```
+
+`V5__person_change.sql` (`17_Outbox and SSE Change Feed`)
+
+```sql
+CREATE TABLE person_change (
+    id         BIGINT PRIMARY KEY,
+    person_id  BIGINT,
+    type       VARCHAR(8),
+    payload    VARCHAR(2000),
+    created_at TIMESTAMP WITH TIME ZONE
+);
+CREATE INDEX ix_person_change_created ON person_change (created_at);
+
+CREATE TABLE person_change_counter (
+    id          BIGINT PRIMARY KEY,
+    last_offset BIGINT NOT NULL
+);
+INSERT INTO person_change_counter (id, last_offset) VALUES (1, 0);
+```
+
+> ✍️ Golden rule: **never edit** a migration that already ran somewhere. Add `V6__...` instead.
+> Flyway checks checksums and refuses to start if an old file changed.
+
+---
+
+## 📸 4. `SnapshotService.java` — create a snapshot
+
+H2's `BACKUP TO` copies the **database file** into a zip while the app keeps running.
+That's much smaller and faster to restore than `SCRIPT TO` (which writes INSERT statements).
+
+```java
+package com.example.demo.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@Service
+public class SnapshotService {
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${app.snapshot.dir:./snapshots}")
+    private Path snapshotDir;
+
+    public synchronized Path createSnapshot() throws IOException {
+        Files.createDirectories(snapshotDir);
+        Path target = snapshotDir.resolve("demo-" + LocalDateTime.now().format(STAMP) + ".zip").toAbsolutePath();
+
+        // Path is built by us (never from user input) → safe to put into the SQL string
+        jdbc.execute("BACKUP TO '" + target.toString().replace("'", "''") + "'");
+
+        // "latest.zip" is what new nodes point at → copy next to it, then rename in one step.
+        // A node starting right now sees the old OR the new zip, never half a file
+        Path tmp = Files.createTempFile(snapshotDir, "latest-", ".zip.tmp");
+        try {
+            Files.copy(target, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, snapshotDir.resolve("latest.zip"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return target;
+    }
+}
+```
+
+Admin endpoint (`/api/admin/**` → ADMIN only):
+
+```java
+@RestController
+@RequestMapping("/api/admin/snapshots")
+public class SnapshotController {
+
+    @Autowired
+    private SnapshotService snapshots;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> create() throws IOException {
+        Path file = snapshots.createSnapshot();
+        return ResponseEntity.ok(Map.of("file", file.getFileName().toString(), "bytes", Files.size(file)));
+    }
+}
+```
+
+---
+
+## ♻️ 5. `SnapshotRestorer.java` — restore before the DataSource starts
+
+It must run **very early** — before Spring creates the DataSource and Flyway touches the DB.
+`ApplicationEnvironmentPreparedEvent` is exactly that moment: properties are loaded, no beans exist yet.
+
+```java
+package com.example.demo.snapshot;
+
+import org.h2.tools.Restore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class SnapshotRestorer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotRestorer.class);
+
+    private static final String FILE_PREFIX = "jdbc:h2:file:";
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        ConfigurableEnvironment env = event.getEnvironment();
+        String location = env.getProperty("app.snapshot.restore-from");
+        String url = env.getProperty("spring.datasource.url", "");
+        if (location == null || !url.startsWith(FILE_PREFIX)) return;
+
+        // jdbc:h2:file:./data/demo;OPTION=x → directory ./data, database name demo
+        Path dbPath = Path.of(url.substring(FILE_PREFIX.length()).split(";")[0]).toAbsolutePath();
+        Path dir = dbPath.getParent();
+        String db = dbPath.getFileName().toString();
+
+        if (Files.exists(dir.resolve(db + ".mv.db"))) {
+            return;                                   // ✅ node already has data → never overwrite it
+        }
+
+        try {
+            Resource snapshot = new DefaultResourceLoader().getResource(location);
+            Path zip = Files.createTempFile("snapshot-", ".zip");
+            try (InputStream in = snapshot.getInputStream()) {
+                Files.copy(in, zip, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.createDirectories(dir);
+            Restore.execute(zip.toString(), dir.toString(), db);   // H2's own unzip-into-place tool
+            Files.delete(zip);
+            log.info("Restored database '{}' from snapshot {}", db, location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore snapshot from " + location, e);
+        }
+    }
+}
+```
+
+> Logging already works here: Spring Boot's `LoggingApplicationListener` handles the same event
+> with a higher precedence, so it has configured logging before our listener runs.
+
+Register it in `DemoApplication.java`:
+
+```java
+@SpringBootApplication
+public class DemoApplication {
+    public static void main(String[] args) {
+        SpringApplication app = new SpringApplication(DemoApplication.class);
+        app.addListeners(new SnapshotRestorer());   // 👈 runs before any bean is created
+        app.run(args);
+    }
+}
+```
+
+After the restore, Flyway starts as usual and applies **only the migrations newer than the snapshot**. 🎉
+
+---
+
+## 🔍 Boot Sequence of a New Node
+
+| Step | What happens                                   | Time (1M persons)        |
+| ---- | ---------------------------------------------- | ------------------------ |
+| 1    | `SnapshotRestorer` copies + unzips `latest.zip` | seconds (file copy)     |
+| 2    | Flyway: schema history says V1..V5 done → skip | milliseconds             |
+| 3    | Hibernate `validate` compares entities to tables | milliseconds           |
+| 4    | App ready, all data there                      | —                        |
+
+vs. the old way: empty DB → `ddl-auto` → replay 1M `POST /api/persons` 🐌
+
+---
+
+## ✅ Your Task
+
+1. Switch to `jdbc:h2:file:./data/demo`, add some persons, restart → they're still there.
+2. `POST /api/admin/snapshots` as admin → a zip appears in `./snapshots`.
+3. Copy the project to a 2nd folder **without** `data/`, set
+   `app.snapshot.restore-from=file:/path/to/snapshots/latest.zip`, start it → same persons.
+4. Add `V6__person_email.sql` (`ALTER TABLE person ADD COLUMN email VARCHAR(255)`) and restart the 2nd node
+   → Flyway applies only V6.
@@ -0,0 +1,219 @@
+Request Coalescing (Single-Flight) for `GET /api/persons/{id}`
+
+A celebrity profile goes viral. 500 requests for `/api/persons/7` arrive in the same few milliseconds:
+
+```
+request 1 ──► findById(7) ──► DB
+request 2 ──► findById(7) ──► DB
+...                                   500 identical queries at the same moment 😵
+request 500 ► findById(7) ──► DB
+```
+
+They all ask the **same** question at the **same** time. Only one needs to go to the DB:
+
+```
+request 1   ──► findById(7) ──► DB ──┐  (leader)
+request 2   ──► wait for request 1 ◄─┤  (followers share the result)
+...                                  │
+request 500 ──► wait for request 1 ◄─┘
+```
+
+This is called **single-flight** (from Go's `singleflight` package).
+It is **not a cache**: once the query is done, the next request goes to the DB again → never stale.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `SingleFlight<K, V>` — generic, lock-free in-flight map (`ConcurrentHashMap` + `CompletableFuture`)
+2. ✅ `PersonLookupService` — `findById` through single-flight
+3. ✅ Micrometer metrics: leaders, followers, coalescing ratio
+
+---
+
+## 📦 1. Dependency (`pom.xml`)
+
+```xml
+<dependency>
+    <groupId>org.springframework.boot</groupId>
+    <artifactId>spring-boot-starter-actuator</artifactId>
+</dependency>
+```
+
+```properties
+management.endpoints.web.exposure.include=health,metrics
+```
+
+---
+
+## ✈️ 2. `SingleFlight.java`
+
+```java
+package com.example.demo.support;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+
+    public V execute(K key, Function<K, V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            followers.increment();                 // 🤝 someone is already asking → wait for them
+            return await(running);
+        }
+
+        leaders.increment();                       // ✈️ we are the one going to the DB
+        try {
+            V value = loader.apply(key);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);         // followers get the same exception
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);            // next request after this → fresh query
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    public long leaders() {
+        return leaders.sum();
+    }
+
+    public long followers() {
+        return followers.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /** followers / all calls — 0.0 = nothing shared, close to 1.0 = almost everything shared. */
+    public double coalescingRatio() {
+        long f = followers.sum();
+        long total = leaders.sum() + f;
+        return total == 0 ? 0.0 : (double) f / total;
+    }
+}
+```
+
+### 🔍 Why this is safe without locks
+
+* `putIfAbsent` is atomic → exactly **one** thread per key wins and becomes the leader.
+* The leader removes **its own** future (`remove(key, mine)`), never a newer one.
+* The leader stores the future **before** running the query, so nobody can slip in between.
+
+---
+
+## 🔎 3. `PersonLookupService.java`
+
+```java
+package com.example.demo.service;
+
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import com.example.demo.support.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+public class PersonLookupService {
+
+    private final PersonRepository personRepo;
+    private final SingleFlight<Long, Optional<Person>> byId = new SingleFlight<>();
+
+    @Autowired
+    public PersonLookupService(PersonRepository personRepo, MeterRegistry registry) {
+        this.personRepo = personRepo;
+
+        FunctionCounter.builder("person.lookup.singleflight", byId, SingleFlight::leaders)
+                .tag("role", "leader").description("findById calls that went to the database")
+                .register(registry);
+        FunctionCounter.builder("person.lookup.singleflight", byId, SingleFlight::followers)
+                .tag("role", "follower").description("findById calls that shared a running query")
+                .register(registry);
+        Gauge.builder("person.lookup.singleflight.ratio", byId, SingleFlight::coalescingRatio)
+                .description("followers / all calls").register(registry);
+        Gauge.builder("person.lookup.singleflight.inflight", byId, SingleFlight::inFlight)
+                .register(registry);
+    }
+
+    public Optional<Person> findById(Long id) {
+        return byId.execute(id, personRepo::findById);
+    }
+}
+```
+
+---
+
+## 🌐 4. `PersonController` — only `getById` changes
+
+```java
+@Autowired
+private PersonLookupService lookup;
+
+@GetMapping("/{id}")
+public ResponseEntity<Person> getById(@PathVariable Long id) {
+    return lookup.findById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+}
+```
+
+> ⚠️ Use single-flight **only for reads that nobody modifies**. `update()` still calls
+> `personRepo.findById` directly — it changes the entity, and followers must never see
+> another request's half-done changes.
+>
+> 💡 All followers get the **same** `Person` instance, loaded in the leader's request.
+> Set `spring.jpa.open-in-view=false` so that entity is detached and simply read by Jackson.
+
+---
+
+## 📊 5. Watch It Work
+
+```bash
+# 200 concurrent requests for the same person
+ab -n 5000 -c 200 -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/1
+
+curl -H "Authorization: Bearer $TOKEN" "http://localhost:8080/actuator/metrics/person.lookup.singleflight?tag=role:leader"
+curl -H "Authorization: Bearer $TOKEN" "http://localhost:8080/actuator/metrics/person.lookup.singleflight?tag=role:follower"
+curl -H "Authorization: Bearer $TOKEN" http://localhost:8080/actuator/metrics/person.lookup.singleflight.ratio
+```
+
+| Load                              | Expected ratio        |
+| --------------------------------- | --------------------- |
+| 1 client, sequential              | `0.0` (nothing to share) |
+| 200 clients, **same** id          | high (most calls are followers) |
+| 200 clients, **random** ids       | close to `0.0`        |
+
+---
+
+## ✅ Your Task
+
+1. Run `ab -c 200` against one id, then against random ids — compare the ratio.
+2. Add `Thread.sleep(100)` inside the loader temporarily → the ratio goes up a lot. Why? 🤔
+3. Make the loader throw for id `666` → all waiting followers get the same error (404/500), not a hang.
@@ -0,0 +1,227 @@
+Batched Multi-Get + DataLoader-Style Batching for Person
+
+A client screen shows 50 people. Today it does:
+
+```
+GET /api/persons/3    → SELECT ... WHERE id = 3
+GET /api/persons/17   → SELECT ... WHERE id = 17
+... × 50              → 50 HTTP round trips + 50 queries 🐢
+```
+
+Two fixes:
+
+1. ✅ **Client-side batching**: one request for all ids
+   `GET /api/persons?ids=3,17,42,...` → **one** `WHERE id IN (...)` query
+2. ✅ **Server-side batching** (like GraphQL's *DataLoader*): many single `GET /api/persons/{id}`
+   that arrive within a few milliseconds are collected and loaded with **one** `IN` query
+
+```
+t=0.0 ms  GET /api/persons/3   ─┐
+t=0.4 ms  GET /api/persons/17  ─┼─► wait ≤ 2 ms ─► SELECT ... WHERE id IN (3, 17, 42) ─► answer all 3
+t=1.1 ms  GET /api/persons/42  ─┘
+```
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.person-loader.window=2ms
+app.person-loader.max-batch-size=100
+app.person-loader.threads=4
+```
+
+> The window adds **at most** 2 ms to a single lookup, but under load it turns
+> hundreds of queries per second into a handful.
+
+---
+
+## 📚 2. Multi-Get Endpoint
+
+```java
+@GetMapping(params = "ids")                       // wins over getAll() when ?ids= is present
+public ResponseEntity<List<Person>> getByIds(@RequestParam List<Long> ids) {
+    if (ids.size() > 1000) {
+        return ResponseEntity.badRequest().build();   // keep the IN list sane
+    }
+    Map<Long, Person> found = new HashMap<>();
+    for (Person p : personRepo.findAllById(ids)) {    // ⚡ one IN query
+        found.put(p.getId(), p);
+    }
+    // Same order as requested; unknown ids are simply left out
+    List<Person> result = ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    return ResponseEntity.ok(result);
+}
+```
+
+```
+GET /api/persons?ids=3,17,42
+```
+
+---
+
+## ⏱️ 3. `PersonBatchLoader.java`
+
+```java
+package com.example.demo.service;
+
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class PersonBatchLoader {
+
+    private final PersonRepository personRepo;
+    private final Duration window;
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService queries;               // DB work never runs on the timer thread
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<Optional<Person>>> pending = new HashMap<>();
+    private boolean flushScheduled;
+
+    @Autowired
+    public PersonBatchLoader(PersonRepository personRepo,
+                             @Value("${app.person-loader.window:2ms}") Duration window,
+                             @Value("${app.person-loader.max-batch-size:100}") int maxBatchSize,
+                             @Value("${app.person-loader.threads:4}") int threads) {
+        this.personRepo = personRepo;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.queries = Executors.newFixedThreadPool(threads);
+    }
+
+    public CompletableFuture<Optional<Person>> load(Long id) {
+        CompletableFuture<Optional<Person>> future;
+        Map<Long, CompletableFuture<Optional<Person>>> full = null;
+
+        synchronized (lock) {                            // tiny critical section: a map put
+            future = pending.computeIfAbsent(id, k -> new CompletableFuture<>());   // same id twice → same future
+            if (pending.size() >= maxBatchSize) {
+                full = pending;                          // 📦 batch is full → send it right now
+                pending = new HashMap<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;                   // ⏱️ first id of a new batch starts the clock
+                timer.schedule(this::flushWindow, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    private void flushWindow() {
+        Map<Long, CompletableFuture<Optional<Person>>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new HashMap<>();
+            flushScheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(Map<Long, CompletableFuture<Optional<Person>>> batch) {
+        queries.execute(() -> {
+            try {
+                Map<Long, Person> found = new HashMap<>();
+                for (Person p : personRepo.findAllById(batch.keySet())) {   // ⚡ one IN query
+                    found.put(p.getId(), p);
+                }
+                batch.forEach((id, f) -> f.complete(Optional.ofNullable(found.get(id))));
+            } catch (RuntimeException e) {
+                batch.values().forEach(f -> f.completeExceptionally(e));
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdown();
+        queries.shutdown();
+    }
+}
+```
+
+### 🔍 Walk-through
+
+| Event                          | `pending`          | Action                         |
+| ------------------------------ | ------------------ | ------------------------------ |
+| `load(3)` at t=0               | {3}                | schedule flush at t=2 ms       |
+| `load(17)` at t=0.4            | {3, 17}            | —                              |
+| `load(3)` again at t=0.9       | {3, 17}            | same future as the first `3`   |
+| t=2 ms                         | {} (swapped out)   | `findAllById([3, 17])`         |
+| 100 ids in < 2 ms              | full               | sent immediately, no waiting   |
+
+---
+
+## 🔗 4. Plug it into `PersonLookupService`
+
+`PersonLookupService` from `20_Single-Flight Person Reads` now asks the batch loader
+instead of calling `findById` directly:
+
+```java
+@Autowired
+private PersonBatchLoader batchLoader;
+
+public Optional<Person> findById(Long id) {
+    // single-flight: same id at the same time → 1 lookup
+    // batch loader:  different ids within 2 ms → 1 query
+    return byId.execute(id, key -> batchLoader.load(key).orTimeout(5, TimeUnit.SECONDS).join());
+}
+```
+
+(`java.util.concurrent.TimeUnit`)
+
+`getById` in the controller doesn't change — it already uses `lookup.findById(id)`.
+
+> ⚠️ `join()` blocks the request thread while waiting. That's fine for normal Tomcat threads.
+> The window (2 ms) is tiny compared to a DB round trip over the network.
+
+---
+
+## 🧪 5. Try It
+
+Turn on SQL logging for a moment:
+
+```properties
+spring.jpa.show-sql=true
+```
+
+```bash
+# 50 parallel single lookups for different ids
+seq 1 50 | xargs -P 50 -I{} curl -s -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/{} > /dev/null
+```
+
+Console: a few `select ... where p1_0.id in (?,?,?,...)` instead of 50 single selects. 🎉
+
+```bash
+curl -H "Authorization: Bearer $TOKEN" "http://localhost:8080/api/persons?ids=1,2,3,999"
+# → persons 1, 2, 3 (999 doesn't exist → left out)
+```
+
+---
+
+## ✅ Your Task
+
+1. Call `?ids=` with 50 ids and count the SQL statements in the log → **1**.
+2. Fire 50 parallel single `GET`s → far fewer than 50 statements.
+3. Set `app.person-loader.window=0ms` and repeat → batching mostly disappears. Find your sweet spot.
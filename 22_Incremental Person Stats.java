@@ -0,0 +1,253 @@
+Incrementally Maintained Person Statistics
+
+In `1_BasicJava` we found adults like this:
+
+```java
+List<Person> adults = people.stream()
+    .filter(p -> p.getAge() > 18)
+    .collect(Collectors.toList());
+```
+
+Fine for 3 people. With 10 million rows, "how many adults?" or "average age?" means
+loading (or at least scanning) **everything**, every time someone asks. 🐢
+
+Idea: keep the answers **ready**. Every `create` / `update` / `delete` adjusts a few counters.
+Reading the stats is then **O(1)** — a few additions, no matter how big the table is. ⚡
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `PersonStats` — count, sum of ages, adults, age histogram (0-9, 10-19, ..., 90+)
+2. ✅ Counters are `LongAdder`s → no lock, no contention between request threads
+3. ✅ Updated **after commit** only → a rolled-back insert never counts
+4. ✅ Rebuilt from the table at startup with one aggregate query
+5. ✅ `GET /api/persons/stats`
+
+---
+
+## ➕ 1. Why `LongAdder` and not `AtomicLong`?
+
+| Type         | 100 threads doing `+1` at the same time                          |
+| ------------ | ---------------------------------------------------------------- |
+| `AtomicLong` | all fight over **one** memory cell → CAS retries, slows down 🐌   |
+| `LongAdder`  | each thread mostly hits its **own** cell (striped) → no fighting ⚡ |
+
+Reading (`sum()`) adds up the cells — a handful of numbers, still O(1).
+
+---
+
+## 📊 2. `PersonStats.java`
+
+```java
+package com.example.demo.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PersonStats {
+
+    static final int BUCKETS = 10;                      // 0-9, 10-19, ..., 90+
+    static final int ADULT_AGE = 18;                    // same rule as 1_BasicJava: age > 18
+
+    public record View(long count, double averageAge, long adults, Map<String, Long> ageHistogram) {}
+
+    private static final class Counters {
+        final LongAdder count = new LongAdder();
+        final LongAdder ageSum = new LongAdder();
+        final LongAdder adults = new LongAdder();
+        final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Counters() {
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+        void add(int age, int sign) {
+            count.add(sign);
+            ageSum.add((long) sign * age);
+            if (age > ADULT_AGE) adults.add(sign);
+            buckets[bucket(age)].add(sign);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private volatile Counters counters = new Counters();
+
+    // ---------- write side: called by PersonController ----------
+
+    public void onCreate(int age) {
+        afterCommit(() -> counters.add(age, +1));
+    }
+
+    public void onDelete(int age) {
+        afterCommit(() -> counters.add(age, -1));
+    }
+
+    public void onUpdate(int oldAge, int newAge) {
+        if (oldAge == newAge) return;
+        afterCommit(() -> {
+            Counters c = counters;
+            c.add(oldAge, -1);
+            c.add(newAge, +1);
+        });
+    }
+
+    // A rolled-back transaction must not change the numbers
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();                               // no transaction → already committed
+        }
+    }
+
+    // ---------- read side: O(1) ----------
+
+    public View view() {
+        Counters c = counters;
+        long count = c.count.sum();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.put(label(i), c.buckets[i].sum());
+        }
+        double avg = count == 0 ? 0.0 : (double) c.ageSum.sum() / count;
+        return new View(count, Math.round(avg * 10) / 10.0, c.adults.sum(), histogram);
+    }
+
+    // ---------- rebuild: once at startup (and after bulk imports) ----------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Counters fresh = new Counters();
+        // The DB does the scan and sends back ≤ 10 small rows — no Person objects in Java
+        jdbc.query("""
+                SELECT LEAST(age / 10, 9) AS bucket,
+                       COUNT(*)           AS n,
+                       SUM(age)           AS age_sum,
+                       SUM(CASE WHEN age > ? THEN 1 ELSE 0 END) AS adults
+                FROM person
+                GROUP BY LEAST(age / 10, 9)
+                """,
+                rs -> {
+                    int b = Math.max(0, rs.getInt("bucket"));
+                    long n = rs.getLong("n");
+                    fresh.count.add(n);
+                    fresh.ageSum.add(rs.getLong("age_sum"));
+                    fresh.adults.add(rs.getLong("adults"));
+                    fresh.buckets[b].add(n);
+                },
+                ADULT_AGE);
+        counters = fresh;                               // swap in one step
+    }
+
+    static int bucket(int age) {
+        return Math.max(0, Math.min(age / 10, BUCKETS - 1));
+    }
+
+    private static String label(int bucket) {
+        return bucket == BUCKETS - 1 ? "90+" : (bucket * 10) + "-" + (bucket * 10 + 9);
+    }
+}
+```
+
+> ⚠️ Writes that commit **while** `rebuild()` runs may be counted twice or not at all.
+> At startup that's before traffic; after a bulk import (`18_Bulk Import Export`) call
+> `rebuild()` when things are quiet.
+
+---
+
+## 🌐 3. `PersonController`
+
+```java
+@Autowired
+private PersonStats stats;
+
+@GetMapping("/stats")                            // literal path wins over /{id}
+public PersonStats.View stats() {
+    return stats.view();
+}
+
+@PostMapping
+@Transactional
+public ResponseEntity<Person> create(@RequestBody Person person) {
+    Person saved = personRepo.save(person);
+    stats.onCreate(saved.getAge());
+    return new ResponseEntity<>(saved, HttpStatus.CREATED);
+}
+
+@PutMapping("/{id}")
+@Transactional
+public ResponseEntity<Person> update(@PathVariable Long id, @RequestBody Person newPerson) {
+    return personRepo.findById(id)
+            .map(existing -> {
+                int oldAge = existing.getAge();         // remember BEFORE changing
+                existing.setName(newPerson.getName());
+                existing.setAge(newPerson.getAge());
+                Person saved = personRepo.save(existing);
+                stats.onUpdate(oldAge, saved.getAge());
+                return ResponseEntity.ok(saved);
+            })
+            .orElse(ResponseEntity.notFound().build());
+}
+
+@DeleteMapping("/{id}")
+@Transactional
+public ResponseEntity<Void> delete(@PathVariable Long id) {
+    return personRepo.findById(id)
+            .map(existing -> {
+                personRepo.delete(existing);
+                stats.onDelete(existing.getAge());
+                return ResponseEntity.noContent().<Void>build();
+            })
+            .orElse(ResponseEntity.notFound().build());
+}
+```
+
+> Using the outbox from `17_Outbox and SSE Change Feed`? Keep the `changeLog.record(...)` lines —
+> both calls live happily in the same transaction.
+
+---
+
+## 🧪 4. Try It
+
+```
+GET /api/persons/stats
+```
+
+```json
+{
+  "count": 3,
+  "averageAge": 22.3,
+  "adults": 2,
+  "ageHistogram": { "0-9": 0, "10-19": 1, "20-29": 1, "30-39": 1, "40-49": 0, "50-59": 0,
+                    "60-69": 0, "70-79": 0, "80-89": 0, "90+": 0 }
+}
+```
+
+(Alice 22, Bob 15, Charlie 30 — the same people as in `1_BasicJava` 🙂)
+
+---
+
+## ✅ Your Task
+
+1. Create Alice (22), Bob (15), Charlie (30) → check the JSON above.
+2. Update Bob to 19 → `adults` becomes 3, Bob moves from... still `10-19`. Update him to 20 → moves to `20-29`.
+3. Throw an exception in `create` after `save` → stats **don't** change (after-commit).
+4. Restart the app with a file DB (`19_Persistent H2 and Snapshots`) → same numbers, rebuilt from the table.
@@ -0,0 +1,400 @@
+In-Memory Trigram Index for `GET /api/persons/search?q=`
+
+"Find everyone whose name contains `ali`":
+
+```sql
+SELECT * FROM person WHERE LOWER(name) LIKE '%ali%'
+```
+
+A normal (B-tree) index only helps when you know the **start** of the value (`LIKE 'ali%'`).
+With a `%` in front the DB has to read **every row**. 1M persons → 1M string compares per search. 🐢
+
+Fix: a small **inverted index** in memory, like a search engine uses.
+
+---
+
+## 🔤 1. What Is a Trigram?
+
+Cut the name into overlapping 3-letter pieces:
+
+```
+"alice"   → ali, lic, ice
+"charlie" → cha, har, arl, rli, lie
+"malik"   → mal, ali, lik
+```
+
+Then remember, for every trigram, **which persons** have it (a *posting list*):
+
+```
+ali → [ alice, malik ]
+lic → [ alice ]
+lie → [ charlie ]
+...
+```
+
+Search `q = "alic"` → trigrams `ali`, `lic` → persons in **both** lists → `alice`. ⚡
+We only touch the short lists for those 2 trigrams — not the whole table.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `PersonNameIndex` — trigram → sorted `int[]` of internal doc numbers (no `List<Integer>`, no boxing)
+2. ✅ Built once at startup, then updated **after commit** on create / update / delete
+3. ✅ Ranked results: exact name → starts with → word starts with → contains; shorter names first
+4. ✅ `GET /api/persons/search?q=ali&limit=20`
+
+---
+
+## 🧮 2. Memory: Why `int[]`?
+
+| Posting list for 100,000 persons | Size         |
+| -------------------------------- | ------------ |
+| `ArrayList<Long>`                | ~2.4 MB (16 B `Long` object + 8 B reference each) |
+| `int[]`                          | **400 KB** (4 B each) |
+
+Each person gets a small **doc number** (0, 1, 2, ...) inside the index.
+New docs always get the **next** number → every list stays sorted just by appending. 🎉
+
+---
+
+## 📇 3. `PersonNameIndex.java`
+
+```java
+package com.example.demo.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class PersonNameIndex {
+
+    public static final int GRAM = 3;
+
+    public record Hit(long personId, String name, double score) {}
+
+    /** A growable, always-sorted int[] of doc numbers. */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            }
+            docs[size++] = doc;                        // doc numbers only grow → stays sorted
+        }
+
+        void trim() {
+            docs = Arrays.copyOf(docs, size);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<String, Postings> postings = new HashMap<>();
+    private long[] personIds = new long[1024];         // doc → person id
+    private String[] names = new String[1024];         // doc → normalized name
+    private Map<Long, Integer> docOf = new HashMap<>(); // person id → doc
+    private BitSet dead = new BitSet();                // docs replaced by an update or deleted
+    private int docCount;
+    private int deadCount;
+    private volatile boolean ready;
+
+    // ---------- build at startup ----------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        lock.writeLock().lock();                       // writes committing meanwhile wait → nothing is lost
+        try {
+            clear();
+            jdbc.query("SELECT id, name FROM person", rs -> {
+                addDoc(rs.getLong("id"), rs.getString("name"));
+            });
+            postings.values().forEach(Postings::trim);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ---------- incremental updates: called by PersonController ----------
+
+    public void onSaved(long personId, String name) {
+        afterCommit(() -> put(personId, name));
+    }
+
+    public void onDeleted(long personId) {
+        afterCommit(() -> remove(personId));
+    }
+
+    private void put(long personId, String name) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(personId);                       // update = old doc dead + new doc
+            addDoc(personId, name);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(long personId) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(personId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ---------- search ----------
+
+    public List<Hit> search(String query, int limit) {
+        String q = normalize(query);
+        Set<String> grams = trigrams(q);
+        if (grams.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            // Shortest list first → the candidate set is small from the start
+            List<Postings> lists = new ArrayList<>();
+            for (String g : grams) {
+                Postings p = postings.get(g);
+                if (p == null) return List.of();       // a trigram nobody has → no match at all
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+
+            int[] candidates = Arrays.copyOf(lists.get(0).docs, lists.get(0).size);
+            int n = candidates.length;
+            for (int i = 1; i < lists.size() && n > 0; i++) {
+                n = intersect(candidates, n, lists.get(i));
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                int doc = candidates[i];
+                String name = names[doc];
+                // Trigrams can match in the wrong order ("alixali" has ali, lix...) → confirm
+                if (!dead.get(doc) && name.contains(q)) {
+                    hits.add(new Hit(personIds[doc], name, score(name, q)));
+                }
+            }
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparingLong(Hit::personId));
+            return hits.size() > limit ? hits.subList(0, limit) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Keeps only the candidates that are also in {@code list}. Both are sorted → one pass. */
+    private static int intersect(int[] candidates, int n, Postings list) {
+        int kept = 0, j = 0;
+        for (int i = 0; i < n && j < list.size; i++) {
+            int doc = candidates[i];
+            while (j < list.size && list.docs[j] < doc) j++;
+            if (j < list.size && list.docs[j] == doc) {
+                candidates[kept++] = doc;
+            }
+        }
+        return kept;
+    }
+
+    static double score(String name, String q) {
+        double score = (double) q.length() / name.length();   // "ali" in "alia" beats "ali" in "alibaba"
+        if (name.equals(q)) score += 3;
+        else if (name.startsWith(q)) score += 2;
+        else if (name.contains(" " + q)) score += 1;          // start of a later word ("mary alice")
+        return score;
+    }
+
+    // ---------- internals (always called under the write lock) ----------
+
+    private void addDoc(long personId, String rawName) {
+        String name = normalize(rawName);
+        if (name.length() < GRAM) return;              // too short to be found by a 3-letter search
+
+        int doc = docCount++;
+        if (doc == personIds.length) {
+            personIds = Arrays.copyOf(personIds, doc * 2);
+            names = Arrays.copyOf(names, doc * 2);
+        }
+        personIds[doc] = personId;
+        names[doc] = name;
+        docOf.put(personId, doc);
+        for (String g : trigrams(name)) {
+            postings.computeIfAbsent(g, k -> new Postings()).add(doc);
+        }
+    }
+
+    private void removeDoc(long personId) {
+        Integer doc = docOf.remove(personId);
+        if (doc != null) {
+            dead.set(doc);                             // lists are not touched → O(1) delete
+            names[doc] = null;
+            deadCount++;
+        }
+    }
+
+    /** More than half the docs dead → rebuild the lists from the live ones. */
+    private void compactIfNeeded() {
+        if (docCount < 1024 || deadCount * 2 < docCount) return;
+
+        long[] oldIds = personIds;
+        String[] oldNames = names;
+        int oldCount = docCount;
+        BitSet oldDead = dead;
+
+        clear();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (!oldDead.get(doc)) {
+                addDoc(oldIds[doc], oldNames[doc]);
+            }
+        }
+        postings.values().forEach(Postings::trim);
+    }
+
+    private void clear() {
+        postings = new HashMap<>();
+        personIds = new long[1024];
+        names = new String[1024];
+        docOf = new HashMap<>();
+        dead = new BitSet();
+        docCount = 0;
+        deadCount = 0;
+    }
+
+    static String normalize(String s) {
+        return s == null ? "" : s.strip().toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> trigrams(String s) {
+        Set<String> grams = new LinkedHashSet<>();     // "aaaa" has "aaa" twice → add the doc once
+        for (int i = 0; i + GRAM <= s.length(); i++) {
+            grams.add(s.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
+```
+
+### 🔍 Walk-through: `q = "ali"`, persons Alice (1), Malik (2), Charlie (3)
+
+| Step                       | Result                                  |
+| -------------------------- | --------------------------------------- |
+| trigrams of `ali`          | `{ali}`                                 |
+| posting list `ali`         | docs `[0, 1]` → Alice, Malik            |
+| verify `contains("ali")`   | both ✅                                  |
+| score                      | alice: 3/5 + 2 (starts with) = **2.6** · malik: 3/5 = **0.6** |
+
+> 💡 Why hold the **write lock** during `build()`? A `create` that commits while we read the table
+> waits for the lock, then its `put` runs → the new person is never lost, never doubled
+> (`put` first removes the old doc of that id).
+
+---
+
+## 🌐 4. `PersonController`
+
+```java
+@Autowired
+private PersonNameIndex nameIndex;
+
+@GetMapping("/search")
+public ResponseEntity<List<Person>> search(@RequestParam String q,
+                                           @RequestParam(defaultValue = "20") int limit) {
+    if (PersonNameIndex.normalize(q).length() < PersonNameIndex.GRAM) {
+        return ResponseEntity.badRequest().build();          // need at least 3 letters
+    }
+    if (!nameIndex.isReady()) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+    List<PersonNameIndex.Hit> hits = nameIndex.search(q, Math.min(Math.max(limit, 1), 100));
+
+    Map<Long, Person> found = new HashMap<>();
+    for (Person p : personRepo.findAllById(hits.stream().map(PersonNameIndex.Hit::personId).toList())) {
+        found.put(p.getId(), p);                              // ⚡ one IN query for the page
+    }
+    List<Person> result = hits.stream().map(h -> found.get(h.personId())).filter(Objects::nonNull).toList();
+    return ResponseEntity.ok(result);
+}
+```
+
+Writes add one line each (next to the `stats.on...` lines from `22_Incremental Person Stats`):
+
+```java
+// create + update
+nameIndex.onSaved(saved.getId(), saved.getName());
+
+// delete
+nameIndex.onDeleted(existing.getId());
+```
+
+---
+
+## 🧪 5. Try It
+
+```bash
+curl -H "Authorization: Bearer $TOKEN" "http://localhost:8080/api/persons/search?q=ali"
+```
+
+```json
+[
+  { "id": 1, "name": "Alice", "age": 22 },
+  { "id": 7, "name": "Malik", "age": 41 }
+]
+```
+
+| Request                | Result               |
+| ---------------------- | -------------------- |
+| `?q=al`                | `400` (too short)    |
+| `?q=zzz`               | `[]` (trigram unknown → no list scanned) |
+| `?q=ALI`               | same as `ali` (lower-cased) |
+
+---
+
+## ✅ Your Task
+
+1. Insert 1M persons (`18_Bulk Import Export`), compare `?q=ali` with `LIKE '%ali%'` timing.
+2. Rename Alice → "Zoe", search `ali` → Alice is gone right after the `PUT` returns.
+3. Delete half the persons → watch `compactIfNeeded()` rebuild the lists (add a log line).
+4. Bonus: add a "did you mean" mode that ranks by **shared trigrams** instead of requiring all of them.
@@ -0,0 +1,358 @@
+Async, Allocation-Light Access Logging + Sampled SQL Logging
+
+What we have now:
+
+```properties
+spring.jpa.show-sql=true
+```
+
+* Every SQL statement → `System.out.println` → **synchronous**, on the request thread
+* Console slow (docker logs, SSH, full disk)? → every request waits for it 🐢
+* No access log at all → "who called what, how long did it take?" — no idea 🤷
+
+Plan:
+
+1. ✅ **Log4j2 async loggers** — a lock-free **ring buffer** (LMAX Disruptor). The request thread
+   drops the event into the buffer and moves on; a background thread writes the file.
+2. ✅ **Garbage-free** mode — reused buffers, no `String.format`, no boxing → almost no garbage per line
+3. ✅ `AccessLogFilter` — method, path, status, latency, user (set by `JwtFilter`)
+4. ✅ SQL: slow statements (≥ threshold) logged **with bind parameters**, fast ones only **sampled**, without
+
+---
+
+## 📦 1. Dependencies (`pom.xml`)
+
+Spring Boot uses Logback by default. Swap it for Log4j2:
+
+```xml
+<dependency>
+    <groupId>org.springframework.boot</groupId>
+    <artifactId>spring-boot-starter</artifactId>
+    <exclusions>
+        <exclusion>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-starter-logging</artifactId>
+        </exclusion>
+    </exclusions>
+</dependency>
+<dependency>
+    <groupId>org.springframework.boot</groupId>
+    <artifactId>spring-boot-starter-log4j2</artifactId>
+</dependency>
+
+<!-- The ring buffer behind Log4j2 async loggers -->
+<dependency>
+    <groupId>com.lmax</groupId>
+    <artifactId>disruptor</artifactId>
+    <version>4.0.0</version>
+</dependency>
+
+<!-- Wraps the DataSource → sees every statement, its time and its parameters -->
+<dependency>
+    <groupId>net.ttddyy</groupId>
+    <artifactId>datasource-proxy</artifactId>
+    <version>1.10</version>
+</dependency>
+```
+
+> Run `mvn dependency:tree | grep logback` → must print **nothing**. Two logging backends = chaos.
+
+---
+
+## ⚙️ 2. Configuration
+
+`src/main/resources/log4j2.component.properties` (read by Log4j2 **before** Spring starts):
+
+```properties
+# ALL loggers async → ring buffer
+log4j2.contextSelector=org.apache.logging.log4j.core.async.AsyncLoggerContextSelector
+log4j2.asyncLoggerRingBufferSize=262144
+log4j2.asyncLoggerWaitStrategy=Timeout
+
+# Buffer full (disk stuck)? Drop INFO and below instead of blocking request threads
+log4j2.asyncQueueFullPolicy=Discard
+log4j2.discardThreshold=INFO
+
+# Garbage-free: reuse thread-local buffers, encode straight into bytes
+log4j2.enableThreadlocals=true
+log4j2.enableDirectEncoders=true
+log4j2.garbagefreeThreadContextMap=true
+```
+
+`application.properties`:
+
+```properties
+# ❌ no more synchronous println
+spring.jpa.show-sql=false
+
+app.sql-log.slow-threshold=100ms
+app.sql-log.sample-rate=0.01
+```
+
+`src/main/resources/log4j2-spring.xml`:
+
+```xml
+<?xml version="1.0" encoding="UTF-8"?>
+<Configuration status="WARN">
+    <Appenders>
+        <Console name="console">
+            <PatternLayout pattern="%d{ISO8601} %-5level [%t] %c{1.} - %m%n"/>
+        </Console>
+
+        <!-- RandomAccessFile = ByteBuffer based, no BufferedOutputStream; flushes in batches -->
+        <RollingRandomAccessFile name="accessFile" fileName="logs/access.log"
+                                 filePattern="logs/access-%d{yyyy-MM-dd}.log.gz" immediateFlush="false">
+            <PatternLayout pattern="%d{ISO8601} %m%n"/>
+            <TimeBasedTriggeringPolicy/>
+        </RollingRandomAccessFile>
+
+        <RollingRandomAccessFile name="sqlFile" fileName="logs/sql.log"
+                                 filePattern="logs/sql-%d{yyyy-MM-dd}.log.gz" immediateFlush="false">
+            <PatternLayout pattern="%d{ISO8601} %-5level %m%n"/>
+            <TimeBasedTriggeringPolicy/>
+        </RollingRandomAccessFile>
+    </Appenders>
+
+    <Loggers>
+        <Logger name="access" level="info" additivity="false">
+            <AppenderRef ref="accessFile"/>
+        </Logger>
+        <Logger name="sql" level="info" additivity="false">
+            <AppenderRef ref="sqlFile"/>
+        </Logger>
+        <Root level="info">
+            <AppenderRef ref="console"/>
+        </Root>
+    </Loggers>
+</Configuration>
+```
+
+> 💡 `%d{ISO8601}` is one of Log4j2's **fixed** date formats → formatted without garbage.
+> Custom patterns like `%d{dd MMM yyyy}` fall back to `SimpleDateFormat`-style code that allocates.
+
+---
+
+## 📝 3. `AccessLogFilter.java`
+
+```java
+package com.example.demo.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    /** JwtFilter puts the username here once the token is valid. */
+    public static final String USER_ATTRIBUTE = AccessLogFilter.class.getName() + ".user";
+
+    // Log4j2 API directly: up to 10 parameters without a varargs array,
+    // and Unbox.box() formats primitives without creating Long/Integer objects
+    private static final Logger ACCESS = LogManager.getLogger("access");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (ACCESS.isInfoEnabled()) {
+                long micros = (System.nanoTime() - start) / 1_000;
+                Object user = request.getAttribute(USER_ATTRIBUTE);
+                // GET /api/persons/7 200 1834us alice
+                ACCESS.info("{} {} {} {}us {}",
+                        request.getMethod(),
+                        request.getRequestURI(),
+                        Unbox.box(response.getStatus()),
+                        Unbox.box(micros),
+                        user == null ? "-" : user);
+            }
+        }
+    }
+}
+```
+
+> ⚠️ No query string in the log on purpose — it can contain personal data (`?q=alice`).
+
+Register it **before** Spring Security, so rejected requests (401/403) are logged too:
+
+```java
+package com.example.demo.config;
+
+@Configuration
+public class LoggingConfig {
+
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilter() {
+        FilterRegistrationBean<AccessLogFilter> reg = new FilterRegistrationBean<>(new AccessLogFilter());
+        reg.setOrder(Ordered.HIGHEST_PRECEDENCE);      // outermost → measures the whole request
+        reg.addUrlPatterns("/*");
+        return reg;
+    }
+}
+```
+
+### 🧰 `JwtFilter` — tell the access log who it was
+
+```java
+if (jwtUtil.validateToken(claims, userDetails)) {
+    UsernamePasswordAuthenticationToken auth =
+            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+
+    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    SecurityContextHolder.getContext().setAuthentication(auth);
+    request.setAttribute(AccessLogFilter.USER_ATTRIBUTE, userDetails.getUsername());   // 👈 new
+}
+```
+
+---
+
+## 🐘 4. `SampledSqlLogger.java`
+
+`datasource-proxy` calls us after **every** statement with the SQL, the bind parameters
+and the elapsed time. We decide what is worth writing:
+
+| Statement                | Logged?                      | Parameters? |
+| ------------------------ | ---------------------------- | ----------- |
+| took ≥ `slow-threshold`  | ✅ always (`WARN`)            | ✅ yes       |
+| fast                     | 🎲 1 in 100 (`sample-rate`)   | ❌ no        |
+
+```java
+package com.example.demo.logging;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SampledSqlLogger implements QueryExecutionListener {
+
+    private static final Logger SQL = LogManager.getLogger("sql");
+
+    private final long slowMillis;
+    private final double sampleRate;
+
+    public SampledSqlLogger(Duration slowThreshold, double sampleRate) {
+        this.slowMillis = slowThreshold.toMillis();
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long millis = execInfo.getElapsedTime();
+
+        if (millis >= slowMillis) {
+            // Rare → OK to build strings here
+            for (QueryInfo q : queryInfoList) {
+                SQL.warn("slow {}ms {} params={}", Unbox.box(millis), q.getQuery(), params(q));
+            }
+        } else if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            // Common path: no parameter formatting at all
+            for (QueryInfo q : queryInfoList) {
+                SQL.info("sample {}ms {}", Unbox.box(millis), q.getQuery());
+            }
+        }
+    }
+
+    private static String params(QueryInfo q) {
+        StringBuilder sb = new StringBuilder();
+        for (List<ParameterSetOperation> batch : q.getParametersList()) {   // one list per batch entry
+            sb.append('[');
+            for (ParameterSetOperation op : batch) {
+                Object[] args = op.getArgs();               // args[0] = index, args[1] = value
+                if (sb.charAt(sb.length() - 1) != '[') sb.append(", ");
+                sb.append(args.length > 1 ? args[1] : null);
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+}
+```
+
+> ⚠️ Slow statements log **real values** — e.g. a password hash in `users`.
+> Keep `logs/sql.log` as private as the database itself.
+
+### 🔌 Plug it into `DataSourceConfig` (from `15_Read Write Routing`)
+
+```java
+@Value("${app.sql-log.slow-threshold:100ms}")
+private Duration slowThreshold;
+
+@Value("${app.sql-log.sample-rate:0.01}")
+private double sampleRate;
+
+@Bean
+@Primary
+public DataSource dataSource() {
+    DataSource measured = ProxyDataSourceBuilder.create(routing)
+            .name("main")
+            .listener(new SampledSqlLogger(slowThreshold, sampleRate))
+            .build();
+    // Lazy proxy stays OUTERMOST → the read-only routing decision still works
+    return new LazyConnectionDataSourceProxy(measured);
+}
+```
+
+(`net.ttddyy.dsproxy.support.ProxyDataSourceBuilder`)
+
+---
+
+## 📊 5. Before / After
+
+| Setting                     | Request thread does                         |
+| --------------------------- | ------------------------------------------- |
+| `show-sql=true`             | format + **write** every SQL line to stdout |
+| Log4j2 async + sampling     | put 1 event into the ring buffer (~100 ns) for the access line, SQL only when slow / sampled |
+
+---
+
+## 🧪 6. Try It
+
+```bash
+curl -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/1
+tail -f logs/access.log
+```
+
+```
+2026-10-19T10:15:02,118 GET /api/persons/1 200 1834us alice
+2026-10-19T10:15:03,006 GET /api/persons 401 412us -
+```
+
+Make a query slow on purpose (H2):
+
+```sql
+SELECT SLEEP(0.2), * FROM person WHERE age > ?
+```
+
+```
+2026-10-19T10:16:40,551 WARN  slow 203ms select ... where age > ? params=[[18]]
+```
+
+---
+
+## ✅ Your Task
+
+1. Run `ab -n 20000 -c 50` with `show-sql=true`, then with this setup → compare p99.
+2. Start with `-verbose:gc` (or JFR) and compare allocations per request before/after.
+3. Set `app.sql-log.sample-rate=1.0` for one minute while debugging, then back to `0.01`.
+4. Fill the disk on purpose (tiny tmpfs) → requests keep working, only log lines are dropped.
@@ -0,0 +1,466 @@
+Always-On Profiling with Java Flight Recorder (JFR) Custom Events
+
+A user says: "yesterday at 14:03 login took 4 seconds". The logs say... `200`. 🤷
+Attaching a profiler **now** doesn't help — the spike is gone.
+
+**Java Flight Recorder** is built into the JDK:
+
+* runs **all the time** in production (overhead ~1%)
+* keeps the last N minutes in a ring of files on disk
+* records GC, locks, threads, I/O... and **our own events**
+
+We add events for the 3 hot paths, then dump the recording when something looks wrong.
+
+---
+
+## 🎯 What We'll Build
+
+| Event                       | Emitted from                | Fields                                     |
+| --------------------------- | --------------------------- | ------------------------------------------ |
+| `demo.JwtAuthentication`    | `JwtFilter`                 | parse / verify / user-load time, user, result |
+| `demo.Login`                | `AuthController.login`      | total time, user, success                  |
+| `demo.PasswordHash`         | `PasswordEncoder` (BCrypt)  | operation, time                            |
+| `demo.PersonRepository`     | `PersonController` handlers | handler, repository time, rows returned    |
+
+Plus: `GET /api/admin/jfr/dump` → download the current recording (`.jfr` file).
+
+---
+
+## ⚙️ 1. Start JFR with the App
+
+```bash
+java -XX:StartFlightRecording=name=always-on,settings=default,disk=true,maxage=30m,maxsize=250m \
+     -jar target/demo-0.0.1-SNAPSHOT.jar
+```
+
+* `settings=default` → the low-overhead profile (the `profile` one samples more, costs more)
+* `maxage=30m` / `maxsize=250m` → older data is thrown away, the disk never fills up
+
+No JVM flag possible (some PaaS)? The `JfrConfig` below starts the same recording from code.
+
+```properties
+app.jfr.always-on=true
+```
+
+---
+
+## 📋 2. Events — `com.example.demo.jfr`
+
+A JFR event is a class that `extends jdk.jfr.Event`. Fields = columns in the recording.
+`begin()` / `commit()` measure the event's own **duration**.
+
+```java
+package com.example.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("demo.JwtAuthentication")
+@Label("JWT Authentication")
+@Category({"Demo", "Security"})
+@StackTrace(false)                         // stack traces are the expensive part → not needed here
+public class JwtAuthenticationEvent extends Event {
+
+    @Label("Parse")
+    @Description("Decoding the token incl. signature + expiry check (one jjwt call)")
+    @Timespan(Timespan.NANOSECONDS)
+    public long parse;
+
+    @Label("Verify")
+    @Description("Revocation check + validateToken")
+    @Timespan(Timespan.NANOSECONDS)
+    public long verify;
+
+    @Label("User Load")
+    @Timespan(Timespan.NANOSECONDS)
+    public long userLoad;
+
+    @Label("Username")
+    public String username;
+
+    @Label("Result")
+    public String result;                  // OK, REVOKED, INVALID, NO_TOKEN
+}
+```
+
+```java
+@Name("demo.Login")
+@Label("Login")
+@Category({"Demo", "Security"})
+@StackTrace(false)
+public class LoginEvent extends Event {
+
+    @Label("Username")
+    public String username;
+
+    @Label("Success")
+    public boolean success;
+}
+```
+
+```java
+@Name("demo.PasswordHash")
+@Label("Password Hash")
+@Category({"Demo", "Security"})
+@StackTrace(false)
+public class PasswordHashEvent extends Event {
+
+    @Label("Operation")
+    public String operation;               // encode / matches
+}
+```
+
+```java
+@Name("demo.PersonRepository")
+@Label("Person Repository Call")
+@Category({"Demo", "Persistence"})
+@StackTrace(false)
+public class PersonRepositoryEvent extends Event {
+
+    @Label("Handler")
+    public String handler;
+
+    @Label("Rows")
+    public int rows;
+
+    /** Runs {@code call} inside the event; duration = repository time. */
+    public static <T> T record(String handler, Supplier<T> call, ToIntFunction<T> rows) {
+        PersonRepositoryEvent event = new PersonRepositoryEvent();
+        event.begin();
+        T result = call.get();
+        event.end();
+        if (event.shouldCommit()) {        // false when JFR is off → just the call, nothing else
+            event.handler = handler;
+            event.rows = result == null ? 0 : rows.applyAsInt(result);
+            event.commit();
+        }
+        return result;
+    }
+}
+```
+
+(`java.util.function.Supplier`, `java.util.function.ToIntFunction`)
+
+> 💡 Is this "always-on" cheap? A disabled event costs ~nothing: the JIT sees `shouldCommit()`
+> is `false` and drops the work. An enabled one is a few hundred ns → fine for one per request.
+
+---
+
+## 🧰 3. `JwtFilter`
+
+```java
+@Override
+protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                FilterChain filterChain) throws ServletException, IOException {
+
+    final String authHeader = request.getHeader("Authorization");
+    JwtAuthenticationEvent event = new JwtAuthenticationEvent();
+    event.begin();
+    event.result = "NO_TOKEN";
+    String username = null;
+    Claims claims = null;
+
+    try {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            event.result = "INVALID";              // stays like this if parse() throws
+
+            long t0 = System.nanoTime();
+            claims = jwtUtil.parse(authHeader.substring(7));
+            long t1 = System.nanoTime();
+            event.parse = t1 - t0;
+
+            boolean revoked = revocations.isRevoked(claims.getId());
+            event.verify += System.nanoTime() - t1;
+            if (revoked) {
+                event.result = "REVOKED";
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token revoked");
+                return;
+            }
+            username = claims.getSubject();
+            event.username = username;
+        }
+
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            long t2 = System.nanoTime();
+            UserDetails userDetails = userService.loadUserByUsername(username);
+            long t3 = System.nanoTime();
+            event.userLoad = t3 - t2;
+
+            boolean valid = jwtUtil.validateToken(claims, userDetails);
+            event.verify += System.nanoTime() - t3;
+
+            if (valid) {
+                event.result = "OK";
+                UsernamePasswordAuthenticationToken auth =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+
+                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(auth);
+                request.setAttribute(AccessLogFilter.USER_ATTRIBUTE, userDetails.getUsername());
+            }
+        }
+    } finally {
+        event.commit();                            // only our part — NOT the rest of the chain
+    }
+
+    filterChain.doFilter(request, response);
+}
+```
+
+> The event's duration covers **only** the JWT work, not the controller behind it.
+> That's why `filterChain.doFilter` is **after** the `finally`.
+
+---
+
+## 🔐 4. Login + BCrypt
+
+BCrypt runs deep inside `authManager.authenticate(...)`. Instead of digging in there,
+we wrap the `PasswordEncoder` bean — every BCrypt call becomes its own event:
+
+```java
+package com.example.demo.jfr;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class RecordingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    public RecordingPasswordEncoder(PasswordEncoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            event.operation = "encode";
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            event.operation = "matches";
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
+```
+
+`SecurityConfig`:
+
+```java
+@Bean
+public PasswordEncoder passwordEncoder() {
+    return new RecordingPasswordEncoder(new BCryptPasswordEncoder());
+}
+```
+
+`AuthController.login`:
+
+```java
+@PostMapping("/login")
+public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
+    LoginEvent event = new LoginEvent();
+    event.begin();
+    event.username = request.getUsername();
+    try {
+        authManager.authenticate(
+                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));  // 🐢 once
+        event.success = true;
+
+        UserDetails userDetails = userService.loadUserByUsername(request.getUsername());
+        return ResponseEntity.ok(tokensFor(userDetails, refreshTokens.issue(userDetails.getUsername())));
+    } finally {
+        event.commit();
+    }
+}
+```
+
+In JDK Mission Control, `demo.PasswordHash` shows up **inside** `demo.Login` on the same thread:
+
+```
+demo.Login          ███████████████████████████  112 ms  alice  success=true
+  demo.PasswordHash  ████████████████████████     98 ms  matches
+```
+
+---
+
+## 🌐 5. `PersonController`
+
+Wrap the repository call, count the rows:
+
+```java
+@GetMapping
+@Transactional(readOnly = true)
+public List<Person> getAll() {
+    return PersonRepositoryEvent.record("getAll", personRepo::findAll, List::size);
+}
+
+@GetMapping("/{id}")
+public ResponseEntity<Person> getById(@PathVariable Long id) {
+    return PersonRepositoryEvent.record("getById", () -> lookup.findById(id), p -> p.isPresent() ? 1 : 0)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+}
+
+@GetMapping(params = "ids")
+public ResponseEntity<List<Person>> getByIds(@RequestParam List<Long> ids) {
+    if (ids.size() > 1000) {
+        return ResponseEntity.badRequest().build();
+    }
+    Map<Long, Person> found = new HashMap<>();
+    for (Person p : PersonRepositoryEvent.record("getByIds", () -> personRepo.findAllById(ids), List::size)) {
+        found.put(p.getId(), p);
+    }
+    List<Person> result = ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    return ResponseEntity.ok(result);
+}
+```
+
+Writes work the same way, e.g. in `create`:
+
+```java
+Person saved = PersonRepositoryEvent.record("create", () -> personRepo.save(person), p -> 1);
+```
+
+---
+
+## 💾 6. `JfrConfig` + Dump Endpoint
+
+```java
+package com.example.demo.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+@org.springframework.context.annotation.Configuration
+public class JfrConfig {
+
+    public static final String RECORDING_NAME = "always-on";
+
+    /** Closes the recording at shutdown only if WE started it. */
+    public record AlwaysOnRecording(Recording recording, boolean owned) implements AutoCloseable {
+        @Override
+        public void close() {
+            // Started by -XX:StartFlightRecording → the JVM owns it (and its dump-on-exit). Hands off!
+            if (owned) recording.close();
+        }
+    }
+
+    /** Starts a recording only if the JVM was NOT started with -XX:StartFlightRecording=name=always-on. */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.jfr.always-on", havingValue = "true")
+    public AlwaysOnRecording alwaysOnRecording() throws IOException, ParseException {
+        Optional<Recording> existing = find();
+        if (existing.isPresent()) {
+            return new AlwaysOnRecording(existing.get(), false);
+        }
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(Duration.ofMinutes(30));
+        recording.setMaxSize(250L * 1024 * 1024);
+        recording.start();
+        return new AlwaysOnRecording(recording, true);
+    }
+
+    public static Optional<Recording> find() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(r -> RECORDING_NAME.equals(r.getName()))
+                .findFirst();
+    }
+}
+```
+
+`/api/admin/**` is already ADMIN-only:
+
+```java
+@RestController
+@RequestMapping("/api/admin/jfr")
+public class JfrController {
+
+    @GetMapping("/dump")
+    public ResponseEntity<StreamingResponseBody> dump() throws IOException {
+        Optional<Recording> recording = JfrConfig.find();
+        if (recording.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Path file = Files.createTempFile("demo-", ".jfr");
+        recording.get().dump(file);                  // copy of the last 30 min; recording keeps running
+
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+}
+```
+
+No HTTP access to the box? Same thing from the shell:
+
+```bash
+jcmd <pid> JFR.dump name=always-on filename=/tmp/spike.jfr
+```
+
+---
+
+## 🔍 7. Reading a Recording
+
+```bash
+curl -H "Authorization: Bearer $ADMIN_TOKEN" -o spike.jfr http://localhost:8080/api/admin/jfr/dump
+
+# Quick look in the terminal
+jfr print --events demo.Login spike.jfr
+jfr summary spike.jfr
+
+# Slowest JWT checks
+jfr print --events demo.JwtAuthentication spike.jfr | grep -B2 -A8 "userLoad = [0-9]\{2,\} ms"
+```
+
+Or open `spike.jfr` in **JDK Mission Control** → Event Browser → `Demo`.
+
+---
+
+## ✅ Your Task
+
+1. Log in 10 times, dump, and find the `demo.PasswordHash` events → how long is one BCrypt `matches`?
+2. Look at `demo.JwtAuthentication`: `verify` is tiny next to `parse`. Why? 🤔
+   (Hint: the signature is checked once, in `parse()` — `validateToken(claims, ...)` only compares names.)
+   Switch `jwt.algorithm` between `HS256`, `ES256` and `EdDSA` and compare `parse`.
+3. Call `GET /api/persons` with 100k rows → `rows` and duration in `demo.PersonRepository`.
+4. Run `ab -c 50` with and without `-XX:StartFlightRecording` → measure the overhead yourself.
@@ -0,0 +1,340 @@
+JIT Warm-Up Before Readiness (+ optional CRaC)
+
+Right after a deploy, the JVM runs our code in the **interpreter**. The JIT compiler only
+compiles a method to fast machine code after it has been called **thousands** of times:
+
+```
+request #1 ... #10,000   → interpreted / C1      → p99 = 180 ms 🐢
+request #10,000+         → C2 compiled           → p99 =  12 ms ⚡
+```
+
+Kubernetes sends real users to the pod as soon as it says "ready" → the first minute of every
+deploy is slow for **them**.
+
+Idea: before we say "ready", we send **ourselves** a few thousand requests through the same paths
+(`JwtFilter` → controller → Hibernate → Jackson). Then the first real user gets compiled code.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `WarmupRunner` — synthetic, **read-only** traffic against our own endpoints
+2. ✅ Readiness stays `REFUSING_TRAFFIC` until it's done (liveness is fine the whole time)
+3. ✅ Configurable: iterations, threads, max duration, on/off
+4. ✅ Optional: **CRaC** checkpoint right after warm-up → new instances start already warm
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+# /actuator/health/liveness + /actuator/health/readiness
+management.endpoint.health.probes.enabled=true
+
+app.warmup.enabled=true
+app.warmup.iterations=20000
+app.warmup.threads=4
+app.warmup.max-duration=60s
+# An existing, read-only account (ROLE_USER) — JwtFilter loads it from the DB like any user
+app.warmup.username=warmup
+# CRaC only: take a checkpoint after warm-up
+app.warmup.checkpoint=false
+```
+
+Kubernetes:
+
+```yaml
+readinessProbe:
+  httpGet: { path: /actuator/health/readiness, port: 8080 }
+  periodSeconds: 2
+livenessProbe:
+  httpGet: { path: /actuator/health/liveness, port: 8080 }
+  initialDelaySeconds: 90       # ⚠️ longer than max-duration, or the pod is killed while warming up
+```
+
+---
+
+## 🚦 2. When Does Spring Say "Ready"?
+
+```
+context refreshed → Tomcat started (port open) → ApplicationRunners → ApplicationReadyEvent → readiness = ACCEPTING_TRAFFIC
+                                                  ▲
+                                                  └── our warm-up runs HERE
+```
+
+Tomcat is already listening, so we can call ourselves over HTTP.
+An `ApplicationRunner` blocks the startup sequence → readiness simply **waits** for it. No tricks needed.
+
+---
+
+## 🔥 3. `WarmupRunner.java`
+
+```java
+package com.example.demo.warmup;
+
+import com.example.demo.model.Person;
+import com.example.demo.security.JwtUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment env;
+
+    @Autowired(required = false)
+    private CracCheckpoint checkpoint;                 // only present with app.warmup.checkpoint=true
+
+    @Value("${app.warmup.iterations:20000}")
+    private int iterations;
+
+    @Value("${app.warmup.threads:4}")
+    private int threads;
+
+    @Value("${app.warmup.max-duration:60s}")
+    private Duration maxDuration;
+
+    @Value("${app.warmup.username:warmup}")
+    private String username;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        // Real ids so Hibernate + Jackson see real rows (empty DB → 404s, still warms the filter chain)
+        List<Long> ids = jdbc.queryForList("SELECT id FROM person ORDER BY id FETCH FIRST 100 ROWS ONLY", Long.class);
+        String idList = ids.stream().limit(20).map(String::valueOf).collect(Collectors.joining(","));
+
+        String token = tokenOrNull();
+        RestClient client = token == null ? null : RestClient.builder()
+                .baseUrl("http://localhost:" + env.getProperty("local.server.port"))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int perThread = iterations / threads;
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread && System.nanoTime() < deadline; i++) {
+                    try {
+                        step(client, i, ids, idList);
+                    } catch (RuntimeException e) {
+                        failures.increment();          // warm-up must never stop the app from starting
+                    }
+                    requests.increment();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(maxDuration.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+
+        log.info("Warm-up done: {} requests, {} failed, {} ms",
+                requests.sum(), failures.sum(), (System.nanoTime() - start) / 1_000_000);
+
+        if (checkpoint != null) {
+            checkpoint.checkpointNow();                // ♻️ CRaC: snapshot the warm JVM (see below)
+        }
+    }
+
+    /** Verifier nodes (12_Asymmetric JWT and JWKS) can't sign tokens → generateToken throws. */
+    private String tokenOrNull() {
+        try {
+            return jwtUtil.generateToken(username, "USER");
+        } catch (RuntimeException e) {
+            log.info("Warm-up skips the HTTP steps, no token available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** Read-only mix: JwtFilter + Hibernate + Jackson on every call. Never writes data. */
+    private void step(RestClient client, int i, List<Long> ids, String idList) {
+        if (client == null) {
+            jackson(i);                                // no token → every API call would be a 401
+            return;
+        }
+        switch (i % 5) {
+            case 0 -> get(client, "/api/persons/" + (ids.isEmpty() ? -1 : ids.get(i % ids.size())));
+            case 1 -> get(client, "/api/persons?ids=" + (idList.isEmpty() ? "-1" : idList));
+            case 2 -> get(client, "/api/persons/stats");
+            case 3 -> get(client, "/api/persons/search?q=ali");
+            default -> jackson(i);
+        }
+    }
+
+    private void get(RestClient client, String uri) {
+        client.get().uri(uri)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (req, res) -> failures.increment())   // 404/503 are fine here
+                .body(byte[].class);                   // don't parse on the client side — only the server matters
+    }
+
+    /** Request bodies (POST/PUT) go through Jackson's deserializer — warm it without writing to the DB. */
+    private void jackson(int i) {
+        try {
+            List<Person> people = new ArrayList<>();
+            for (int k = 0; k < 20; k++) {
+                Person p = new Person();
+                p.setName("Warmup " + (i + k));
+                p.setAge(18 + k);
+                people.add(p);
+            }
+            byte[] json = objectMapper.writeValueAsBytes(people);
+            objectMapper.readValue(json, new TypeReference<List<Person>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+```
+
+> 💡 Why real HTTP and not just calling the controller? The slow-at-start code is **everywhere**:
+> Tomcat's parser, the security filter chain, `JwtFilter`, argument resolvers, Jackson, Hibernate.
+> Only a real request walks through all of it.
+
+> 🔑 On `jwt.role=verifier` nodes there is no signing key, so no token → only the Jackson step runs.
+> Want full warm-up there? Let the issuer hand out a long-lived `warmup` token and pass it in.
+
+> ⚠️ The warm-up requests show up in the access log (`24_Async Access and SQL Logging`) as user `warmup`.
+> `POST /auth/login` is **not** warmed on purpose — BCrypt is slow by design, JIT can't change that.
+
+Create the account once (as admin, or with the `register` endpoint from `6_JWT_Auth`):
+
+```json
+POST /auth/register
+{ "username": "warmup", "password": "<long random>", "role": "USER" }
+```
+
+---
+
+## 🔍 4. Check the Gate
+
+```bash
+java -jar target/demo-0.0.1-SNAPSHOT.jar &
+while true; do curl -s localhost:8080/actuator/health/readiness; echo; sleep 1; done
+```
+
+```
+{"status":"OUT_OF_SERVICE"}     ← warming up
+{"status":"OUT_OF_SERVICE"}
+...
+{"status":"UP"}                 ← "Warm-up done: 20000 requests, 12 failed, 23412 ms"
+```
+
+---
+
+## ♻️ 5. Optional: CRaC — Warm Once, Start Warm Everywhere
+
+**CRaC** (Coordinated Restore at Checkpoint) saves the **whole running JVM** — heap, JIT-compiled code —
+to disk. A new instance **restores** that image in ~100 ms, already warm.
+Needs a CRaC-enabled JDK (e.g. Azul Zulu "CRaC" builds) on Linux.
+
+```xml
+<dependency>
+    <groupId>org.crac</groupId>
+    <artifactId>crac</artifactId>
+    <version>1.5.0</version>
+</dependency>
+```
+
+```java
+package com.example.demo.warmup;
+
+import org.crac.Core;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "app.warmup.checkpoint", havingValue = "true")
+public class CracCheckpoint {
+
+    public void checkpointNow() {
+        try {
+            // Spring closes Tomcat's port + Hikari connections before the snapshot
+            // and opens them again after restore (Spring 6.1+ CRaC support)
+            Core.checkpointRestore();
+        } catch (Exception e) {
+            throw new IllegalStateException("CRaC checkpoint failed", e);
+        }
+    }
+}
+```
+
+### Build the image once
+
+```bash
+java -XX:CRaCCheckpointTo=./cr -Dapp.warmup.checkpoint=true -jar target/demo-0.0.1-SNAPSHOT.jar
+# → warm-up runs, checkpoint is written to ./cr, the process exits
+```
+
+### Start every instance from it
+
+```bash
+java -XX:CRaCRestoreFrom=./cr
+# → continues right after checkpointNow() → readiness UP within a second, already warm ⚡
+```
+
+| Start mode                  | Time to ready | First requests |
+| --------------------------- | ------------- | -------------- |
+| normal                      | ~5 s          | slow 🐢         |
+| normal + warm-up            | ~30 s         | fast ⚡         |
+| CRaC restore                | < 1 s         | fast ⚡         |
+
+### ⚠️ What Is Frozen in the Image
+
+Everything in memory at checkpoint time travels to **every** instance:
+
+* JWT signing keys (`12_Asymmetric JWT and JWKS`) and the HMAC key of `7_Basic Auth Credential Cache`
+  → treat the `cr/` folder like a **secret**
+* The revocation Bloom filter (`13_Token Revocation`) → its next `sync()` catches up
+* A file DB (`19_Persistent H2 and Snapshots`) must **not** be open at checkpoint time —
+  use CRaC with a server DB (PostgreSQL...), not embedded H2
+
+---
+
+## ✅ Your Task
+
+1. Deploy without warm-up, run `ab -n 2000 -c 20` right after start → note p99.
+2. Same with warm-up → compare. Then with `app.warmup.iterations=2000` → is it enough?
+3. Start with `-XX:+PrintCompilation | grep JwtFilter` → watch it get compiled during warm-up.
+4. Set `app.warmup.max-duration=5s` → readiness comes UP after 5 s even if not all iterations ran.
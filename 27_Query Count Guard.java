@@ -0,0 +1,415 @@
+Counting SQL Statements per Request (N+1 Guard)
+
+A harmless-looking change:
+
+```java
+@Entity
+public class Person {
+    ...
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Team team;                    // 👈 new
+}
+```
+
+Now `GET /api/persons` with 100 persons runs **1 + 100** queries (one per `team`, when Jackson
+touches it). Tests stay green, the code review looks fine, production gets slow. 😱
+That's the famous **N+1 problem**.
+
+Other quiet regressions we had or almost had:
+
+* `existsById` + `deleteById` in `delete` (`4_Spring Boot REST API — Full CRUD`) → 2 queries instead of 1
+* `login` loads the same user **twice** (once in `authManager`, once for the token)
+
+Fix: **count** the statements of every request — in production as a metric, in tests as an assertion.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `QueryCounter` — per-request counts (select / insert / update / delete / other)
+2. ✅ `QueryCountListener` — a `datasource-proxy` listener (dependency from `24_Async Access and SQL Logging`)
+3. ✅ `QueryCountFilter` — opens the scope, publishes a Micrometer metric, keeps the counts on the request
+4. ✅ Test API: `.andExpect(totalQueries(1))`, `.andExpect(atMostQueries(3))` → regressions **fail the build**
+
+---
+
+## 🧮 1. `QueryCounter.java`
+
+```java
+package com.example.demo.querycount;
+
+import net.ttddyy.dsproxy.QueryType;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public final class QueryCounter {
+
+    /** The counts of one request. Thread-safe: scatter threads may add to it too. */
+    public static final class Scope {
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(QueryType.values().length);
+
+        void add(QueryType type) {
+            counts.incrementAndGet(type.ordinal());
+        }
+
+        public QueryCounts snapshot() {
+            return new QueryCounts(
+                    counts.get(QueryType.SELECT.ordinal()),
+                    counts.get(QueryType.INSERT.ordinal()),
+                    counts.get(QueryType.UPDATE.ordinal()),
+                    counts.get(QueryType.DELETE.ordinal()),
+                    counts.get(QueryType.OTHER.ordinal()));
+        }
+    }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    /** Starts a new scope on this thread. Returns the previous one → pass it to {@link #end}. */
+    public static Scope begin() {
+        Scope previous = CURRENT.get();
+        CURRENT.set(new Scope());
+        return previous;
+    }
+
+    public static QueryCounts end(Scope previous) {
+        Scope scope = CURRENT.get();
+        if (previous == null) CURRENT.remove(); else CURRENT.set(previous);   // Tomcat reuses threads!
+        return scope == null ? QueryCounts.NONE : scope.snapshot();
+    }
+
+    static void record(QueryType type) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {                        // outside a request (scheduled jobs...) → not counted
+            scope.add(type);
+        }
+    }
+
+    /** Runs {@code task} on another thread but counts its queries for the CURRENT request. */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) return task;
+        return () -> {
+            Scope before = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                return task.call();
+            } finally {
+                if (before == null) CURRENT.remove(); else CURRENT.set(before);
+            }
+        };
+    }
+}
+```
+
+```java
+package com.example.demo.querycount;
+
+public record QueryCounts(int select, int insert, int update, int delete, int other) {
+
+    public static final QueryCounts NONE = new QueryCounts(0, 0, 0, 0, 0);
+
+    public int total() {
+        return select + insert + update + delete + other;
+    }
+}
+```
+
+---
+
+## 👂 2. `QueryCountListener.java`
+
+```java
+package com.example.demo.querycount;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+
+import java.util.List;
+
+public class QueryCountListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // A PreparedStatement batch is ONE QueryInfo (one round trip) → counted once
+        for (QueryInfo q : queryInfoList) {
+            QueryCounter.record(QueryUtils.getQueryType(q.getQuery()));
+        }
+    }
+}
+```
+
+Add it next to the SQL logger in `DataSourceConfig`:
+
+```java
+DataSource measured = ProxyDataSourceBuilder.create(routing)
+        .name("main")
+        .listener(new SampledSqlLogger(slowThreshold, sampleRate))
+        .listener(new QueryCountListener())          // 👈 new
+        .build();
+```
+
+Using shards (`16_Sharding Person`)? They have their own pools — wrap them too, and let the
+scatter threads count for the request that started them:
+
+```java
+// PersonShards constructor
+JdbcTemplate jdbc = new JdbcTemplate(ProxyDataSourceBuilder.create(ds)
+        .name("shard-" + i)
+        .listener(new QueryCountListener())
+        .build());
+
+// every scatter.submit(task) becomes
+scatter.submit(QueryCounter.propagate(task));
+```
+
+> ⚠️ The batch loader (`21_Batched Person Loading`) runs **one** query for **many** requests →
+> it belongs to none of them, so it's **not** propagated. `GET /api/persons/{id}` shows 0 queries.
+
+---
+
+## 🌐 3. `QueryCountFilter.java`
+
+```java
+package com.example.demo.querycount;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    /** Tests read the counts from here (see QueryCountMatchers). */
+    public static final String ATTRIBUTE = QueryCountFilter.class.getName() + ".counts";
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+
+    public QueryCountFilter(MeterRegistry registry, int warnThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryCounter.Scope outer = QueryCounter.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCounts counts = QueryCounter.end(outer);
+            request.setAttribute(ATTRIBUTE, counts);
+
+            // "/api/persons/{id}", not "/api/persons/7" → a few time series, not millions
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+            DistributionSummary.builder("http.server.requests.queries")
+                    .description("SQL statements per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(counts.total());
+
+            if (counts.total() > warnThreshold) {
+                log.warn("{} {} ran {} SQL statements ({})", request.getMethod(), uri, counts.total(), counts);
+            }
+        }
+    }
+}
+```
+
+`LoggingConfig` (from `24_Async Access and SQL Logging`) registers it right after the access log:
+
+```java
+@Bean
+public FilterRegistrationBean<QueryCountFilter> queryCountFilter(MeterRegistry registry,
+        @Value("${app.query-count.warn-threshold:10}") int warnThreshold) {
+    FilterRegistrationBean<QueryCountFilter> reg =
+            new FilterRegistrationBean<>(new QueryCountFilter(registry, warnThreshold));
+    reg.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+    reg.addUrlPatterns("/*");
+    return reg;
+}
+```
+
+```properties
+app.query-count.warn-threshold=10
+```
+
+```bash
+curl -H "Authorization: Bearer $TOKEN" \
+  "http://localhost:8080/actuator/metrics/http.server.requests.queries?tag=uri:/api/persons"
+# → COUNT, TOTAL, MAX → average = TOTAL / COUNT
+```
+
+---
+
+## 🧪 4. Test API — `src/test/java/com/example/demo/querycount/QueryCountMatchers.java`
+
+MockMvc runs the request on the **test thread** with the real filters → the counts are on the request.
+
+```java
+package com.example.demo.querycount;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class QueryCountMatchers {
+
+    private QueryCountMatchers() {
+    }
+
+    public static ResultMatcher totalQueries(int expected) {
+        return result -> assertEquals(expected, counts(result).total(), () -> "SQL statements: " + counts(result));
+    }
+
+    public static ResultMatcher atMostQueries(int max) {
+        return result -> assertTrue(counts(result).total() <= max,
+                () -> "expected at most " + max + " SQL statements but was " + counts(result));
+    }
+
+    public static ResultMatcher selects(int expected) {
+        return result -> assertEquals(expected, counts(result).select(), () -> "SQL statements: " + counts(result));
+    }
+
+    private static QueryCounts counts(MvcResult result) {
+        Object counts = result.getRequest().getAttribute(QueryCountFilter.ATTRIBUTE);
+        assertNotNull(counts, "QueryCountFilter did not run — is it registered as a filter?");
+        return (QueryCounts) counts;
+    }
+}
+```
+
+### `PersonQueryCountTest.java`
+
+```java
+package com.example.demo.querycount;
+
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.demo.querycount.QueryCountMatchers.atMostQueries;
+import static com.example.demo.querycount.QueryCountMatchers.totalQueries;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.warmup.enabled=false")   // no warm-up traffic in tests
+@AutoConfigureMockMvc
+class PersonQueryCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PersonRepository personRepo;
+
+    private List<Person> people;
+
+    @BeforeEach
+    void seed() {
+        people = List.of(person("Alice", 22), person("Bob", 15), person("Charlie", 30))
+                .stream().map(personRepo::save).toList();
+    }
+
+    @Test
+    @WithMockUser
+    void getAllIsOneQuery() throws Exception {
+        mvc.perform(get("/api/persons"))
+                .andExpect(status().isOk())
+                .andExpect(totalQueries(1));
+    }
+
+    @Test
+    @WithMockUser
+    void multiGetIsOneQuery() throws Exception {
+        String ids = people.stream().map(p -> p.getId().toString()).reduce((a, b) -> a + "," + b).orElseThrow();
+        mvc.perform(get("/api/persons").param("ids", ids))
+                .andExpect(status().isOk())
+                .andExpect(totalQueries(1));
+    }
+
+    @Test
+    @WithMockUser
+    void statsNeverHitTheDatabase() throws Exception {
+        mvc.perform(get("/api/persons/stats"))       // 22_Incremental Person Stats
+                .andExpect(status().isOk())
+                .andExpect(totalQueries(0));
+    }
+
+    @Test
+    void loginRunsAtMostThreeStatements() throws Exception {
+        String username = "qc-" + UUID.randomUUID();
+        String body = "{\"username\":\"" + username + "\",\"password\":\"secret123\"}";
+        mvc.perform(post("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"secret123\",\"role\":\"USER\"}"))
+                .andExpect(status().isOk());
+
+        // user SELECT (authManager) + user SELECT (token) + refresh_token INSERT
+        mvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(atMostQueries(3));
+    }
+
+    private static Person person(String name, int age) {
+        Person p = new Person();
+        p.setName(name);
+        p.setAge(age);
+        return p;
+    }
+}
+```
+
+Now add `@ManyToOne Team team` (EAGER or touched by Jackson) → `getAllIsOneQuery` fails:
+
+```
+SQL statements: QueryCounts[select=4, insert=0, update=0, delete=0, other=0] ==> expected: <1> but was: <4>
+```
+
+🎉 The N+1 is caught **before** merge, not in production.
+
+---
+
+## ✅ Your Task
+
+1. Run the test class, then add a lazy `@ManyToOne` to `Person` and run it again.
+2. Fix `login` so the user is loaded **once** (use the `Authentication` returned by `authenticate`),
+   then tighten the test to `atMostQueries(2)`.
+3. Add a test for `PUT /api/persons/{id}`: how many statements? Write the number down as the budget.
+4. Graph `http.server.requests.queries` max per `uri` in Grafana → alert if it ever jumps.
@@ -0,0 +1,371 @@
+Request Deadlines → JDBC Query Timeouts → 503
+
+The client (a browser, another service) waits **2 seconds**, then gives up.
+Our server doesn't know that. A slow `findAll()` or a `PUT` waiting for a locked row keeps going:
+
+```
+client   ──request──► ....... gives up after 2 s ✖
+server   ───────────────── findAll() still running at 30 s ─────────► writes the response to nobody 🤦
+```
+
+Under overload that's the worst case: threads and DB connections are busy with work
+**nobody wants any more**, so new requests queue up behind them → everything gets slower.
+
+Fix: every request gets a **deadline**. Every SQL statement gets a **timeout** = time left.
+Time's up → stop, answer `503`, free the thread.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `X-Request-Timeout` header (e.g. `800` ms) — or a default, capped at a maximum
+2. ✅ `Deadline` kept in request context (a `ThreadLocal`, like `SecurityContextHolder`)
+3. ✅ Before each statement: no time left → fail **without** touching the DB;
+   otherwise `Statement.setQueryTimeout(time left)`
+4. ✅ `503 Service Unavailable` for expired work
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.deadline.header=X-Request-Timeout
+app.deadline.default=2s
+app.deadline.max=10s
+```
+
+---
+
+## ⏳ 2. `Deadline.java`
+
+```java
+package com.example.demo.deadline;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /** Throws if the time is up — call it before starting expensive work. */
+    public void check(String what) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded before " + what);
+        }
+    }
+
+    // ---------- request context ----------
+
+    public static Deadline current() {
+        return CURRENT.get();                         // null → no deadline (scheduled jobs, startup...)
+    }
+
+    static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /** Carries the caller's deadline to another thread (shard scatter, executors). */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) return task;
+        return () -> {
+            Deadline before = CURRENT.get();
+            CURRENT.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                if (before == null) CURRENT.remove(); else CURRENT.set(before);
+            }
+        };
+    }
+}
+```
+
+```java
+package com.example.demo.deadline;
+
+import org.springframework.dao.QueryTimeoutException;
+
+// A QueryTimeoutException → Spring's exception translation lets it through unchanged,
+// and one handler covers both "our" timeout and a real JDBC timeout
+public class DeadlineExceededException extends QueryTimeoutException {
+
+    public DeadlineExceededException(String msg) {
+        super(msg);
+    }
+}
+```
+
+---
+
+## 🌐 3. `DeadlineFilter.java`
+
+```java
+package com.example.demo.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    // Size-bound, not time-bound: a 10M-row import (18_Bulk Import Export) or a 20 MB attachment
+    // (29_Person Attachments) legitimately takes minutes. A 2 s deadline would cut them off with a 503
+    // AFTER some batches were already committed.
+    private static final List<String> LONG_RUNNING_SUFFIXES = List.of(
+            "/api/persons/import", "/api/persons/export", "/attachment");
+
+    private final String header;
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+
+    public DeadlineFilter(String header, Duration defaultTimeout, Duration maxTimeout) {
+        this.header = header;
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return LONG_RUNNING_SUFFIXES.stream().anyMatch(uri::endsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Duration timeout = timeoutOf(request);
+        if (timeout.isZero()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Deadline already exceeded");
+            return;
+        }
+        Deadline.set(Deadline.after(timeout));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.clear();                         // Tomcat reuses threads!
+        }
+    }
+
+    private Duration timeoutOf(HttpServletRequest request) {
+        String value = request.getHeader(header);
+        if (value == null) return defaultTimeout;
+        try {
+            long millis = Long.parseLong(value.trim());
+            if (millis <= 0) return Duration.ZERO;
+            Duration asked = Duration.ofMillis(millis);
+            return asked.compareTo(maxTimeout) > 0 ? maxTimeout : asked;   // clients can't ask for 1 hour
+        } catch (NumberFormatException e) {
+            return defaultTimeout;
+        }
+    }
+}
+```
+
+Register it in `LoggingConfig` right after the query counter (`27_Query Count Guard`), so the
+access log still records the `503`:
+
+```java
+@Bean
+public FilterRegistrationBean<DeadlineFilter> deadlineFilter(
+        @Value("${app.deadline.header:X-Request-Timeout}") String header,
+        @Value("${app.deadline.default:2s}") Duration defaultTimeout,
+        @Value("${app.deadline.max:10s}") Duration maxTimeout) {
+    FilterRegistrationBean<DeadlineFilter> reg =
+            new FilterRegistrationBean<>(new DeadlineFilter(header, defaultTimeout, maxTimeout));
+    reg.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+    reg.addUrlPatterns("/api/*");                     // /auth/login: BCrypt can't be cancelled anyway
+    return reg;
+}
+```
+
+---
+
+## 🐘 4. `DeadlineQueryTimeoutListener.java` — the timeout reaches JDBC
+
+Every statement of `PersonRepository` (Hibernate **and** the shard `JdbcTemplate`s) passes through
+`datasource-proxy` (`24_Async Access and SQL Logging`). Right **before** it runs, we look at the clock:
+
+```java
+package com.example.demo.deadline;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public class DeadlineQueryTimeoutListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) return;
+
+        deadline.check("running SQL");                // ⛔ no time left → the DB never sees it
+
+        Statement statement = execInfo.getStatement();
+        try {
+            // JDBC timeouts are whole SECONDS → round up, minimum 1
+            int seconds = (int) Math.max(1, (deadline.remainingMillis() + 999) / 1000);
+            int current = statement.getQueryTimeout();
+            if (current == 0 || seconds < current) {  // never make an existing timeout LONGER
+                statement.setQueryTimeout(seconds);
+            }
+        } catch (SQLException e) {
+            // driver without timeout support → we still have the check above
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+}
+```
+
+`DataSourceConfig`:
+
+```java
+DataSource measured = ProxyDataSourceBuilder.create(routing)
+        .name("main")
+        .listener(new DeadlineQueryTimeoutListener())   // 👈 first: may stop the statement
+        .listener(new SampledSqlLogger(slowThreshold, sampleRate))
+        .listener(new QueryCountListener())
+        .build();
+```
+
+> 💡 Seconds are coarse. With PostgreSQL you can go to milliseconds:
+> `SET LOCAL statement_timeout = 350` at the start of the transaction.
+> The `check(...)` before each statement works at **any** precision.
+
+### Other places that wait
+
+| Where                                   | Change                                                       |
+| --------------------------------------- | ------------------------------------------------------------ |
+| Shard scatter (`16_Sharding Person`)     | `scatter.submit(Deadline.propagate(QueryCounter.propagate(task)))` and wait `min(shardsQueryTimeout, remaining)` |
+| Batch loader (`21_Batched Person Loading`) | `orTimeout(...)` uses the time left (below)                |
+
+```java
+// PersonLookupService
+public Optional<Person> findById(Long id) {
+    Deadline deadline = Deadline.current();
+    long waitMillis = deadline == null ? 5_000 : deadline.remainingMillis();
+    return byId.execute(id, key -> batchLoader.load(key).orTimeout(waitMillis, TimeUnit.MILLISECONDS).join());
+}
+```
+
+---
+
+## 🚫 5. `503` for Expired Work
+
+```java
+package com.example.demo.deadline;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+@RestControllerAdvice
+public class DeadlineExceptionHandler {
+
+    // Our own check AND a real JDBC timeout (translated by Spring) both end up here
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, String>> timedOut(QueryTimeoutException e) {
+        return serviceUnavailable();
+    }
+
+    // Batch loader future ran out of time
+    @ExceptionHandler(CompletionException.class)
+    public ResponseEntity<Map<String, String>> completion(CompletionException e) {
+        if (e.getCause() instanceof TimeoutException) {
+            return serviceUnavailable();
+        }
+        throw e;
+    }
+
+    private static ResponseEntity<Map<String, String>> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "deadline exceeded"));
+    }
+}
+```
+
+> The transaction is rolled back as usual → a `PUT` that timed out changed **nothing**.
+
+---
+
+## 🧪 6. Try It
+
+```bash
+# Lock a row from an H2 console session:
+#   SET AUTOCOMMIT OFF; SELECT * FROM person WHERE id = 1 FOR UPDATE;
+
+time curl -i -X PUT -H "Authorization: Bearer $TOKEN" -H "X-Request-Timeout: 1500" \
+     -H "Content-Type: application/json" -d '{"name":"Alice","age":23}' \
+     http://localhost:8080/api/persons/1
+```
+
+```
+HTTP/1.1 503
+Retry-After: 1
+{"error":"deadline exceeded"}
+
+real    0m2.0s          ← not 30 s or "forever"
+```
+
+| Header                     | Effective deadline |
+| -------------------------- | ------------------ |
+| (none)                     | 2 s (default)      |
+| `X-Request-Timeout: 300`   | 300 ms → JDBC 1 s, checked before every statement |
+| `X-Request-Timeout: 60000` | 10 s (max)         |
+| `X-Request-Timeout: 0`     | `503` right away   |
+| `/import`, `/export`, `/{id}/attachment` | no deadline (bulk / streaming) |
+
+---
+
+## ✅ Your Task
+
+1. Insert 1M persons, call `GET /api/persons` with `X-Request-Timeout: 500` → `503` quickly.
+2. Without the header, watch `hikaricp.connections.active` during a load test with a slow query,
+   then with `app.deadline.default=1s` → connections are freed much sooner.
+3. Load test with 2× your max throughput → compare p99 with and without deadlines.
+4. Bonus: forward the **remaining** time as `X-Request-Timeout` when calling another service.
@@ -0,0 +1,477 @@
+Streaming File Attachments for Person (Avatars / Documents)
+
+The obvious way:
+
+```java
+@Lob
+private byte[] avatar;          // 😱 5 MB
+```
+
+* Every `findById`, every `GET /api/persons` → megabytes loaded into the heap, even if nobody wants the picture
+* Upload = whole file in memory (`byte[]`) → 50 parallel uploads × 20 MB = 1 GB heap
+* The DB file (`19_Persistent H2 and Snapshots`) and every snapshot explode in size
+
+Better: files live on **disk**, `Person` only keeps a few columns of **metadata**.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `AttachmentStore` — **content-addressed**: a file's name = its SHA-256
+   → same file uploaded twice = stored once, and the hash is a perfect `ETag`
+2. ✅ `PUT /api/persons/{id}/attachment` — body streamed to disk with a `FileChannel`, never fully in memory
+3. ✅ `GET /api/persons/{id}/attachment` — zero-copy (**sendfile** / `transferTo`), `ETag` + `304`, **Range** (`206`)
+4. ✅ Cleanup job for blobs no person points to any more
+
+```
+attachments/
+├── 3f/
+│   └── a9/
+│       └── 3fa9c2...e81     ← SHA-256 of the content
+└── tmp/                    ← uploads in progress
+```
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.attachments.dir=./attachments
+app.attachments.max-size=20MB
+
+# Spring must NOT parse/buffer the body — we read the raw stream ourselves
+spring.servlet.multipart.enabled=false
+```
+
+---
+
+## 🧱 2. Metadata on `Person`
+
+```java
+@Column(length = 64)
+private String attachmentSha256;        // null → no attachment
+
+private String attachmentContentType;
+
+private Long attachmentSize;
+
+// Getters and Setters
+```
+
+`V6__person_attachment.sql` (Flyway, from `19_Persistent H2 and Snapshots`):
+
+```sql
+ALTER TABLE person ADD COLUMN attachment_sha256       VARCHAR(64);
+ALTER TABLE person ADD COLUMN attachment_content_type VARCHAR(255);
+ALTER TABLE person ADD COLUMN attachment_size         BIGINT;
+```
+
+> Using shards (`16_Sharding Person`)? Add the 3 columns to the shard `CREATE TABLE` and the row mapper too.
+
+---
+
+## 💾 3. `AttachmentStore.java`
+
+```java
+package com.example.demo.attachment;
+
+import com.example.demo.sharding.PersonShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Component
+public class AttachmentStore {
+
+    public record Blob(String sha256, long size) {}
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long max) {
+            super("Attachment larger than " + max + " bytes");
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tmp;
+    private final long maxSize;
+
+    private static final String USED_HASHES =
+            "SELECT DISTINCT attachment_sha256 FROM person WHERE attachment_sha256 IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired(required = false)
+    private PersonShards shards;                          // 16_Sharding Person: the rows live there
+
+    public AttachmentStore(@Value("${app.attachments.dir:./attachments}") Path root,
+                           @Value("${app.attachments.max-size:20MB}") DataSize maxSize) throws IOException {
+        this.root = root.toAbsolutePath();
+        this.tmp = this.root.resolve("tmp");
+        this.maxSize = maxSize.toBytes();
+        Files.createDirectories(tmp);
+    }
+
+    /** Streams {@code body} to disk in 64 KB chunks and hashes it on the way. */
+    public Blob store(InputStream body) throws IOException {
+        MessageDigest sha256 = sha256();
+        Path part = Files.createTempFile(tmp, "upload-", ".part");
+        long size = 0;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);      // one reused buffer per upload
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxSize) throw new TooLargeException(maxSize);
+                    sha256.update(buffer.duplicate());                        // hash without consuming
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    buffer.clear();
+                }
+                out.force(true);                                              // on disk before we point at it
+            }
+
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path target = pathOf(hash);
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);    // readers never see half a file
+            } catch (FileAlreadyExistsException e) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now())); // same bytes already stored 🎉
+            }
+            return new Blob(hash, size);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    public Path pathOf(String sha256) {
+        if (!sha256.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Not a SHA-256: " + sha256);   // never build paths from junk
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * Deletes blobs no person points to. Only files older than 1 h: an upload that just finished
+     * may not be committed on its Person yet.
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void deleteOrphans() throws IOException {
+        Set<String> used = new HashSet<>(jdbc.queryForList(USED_HASHES, String.class));
+        if (shards != null) {
+            // ⚠️ Sharded: the main `person` table is empty → without this EVERY blob looks orphaned.
+            // One shard unreachable → the query throws → nothing is deleted this round
+            for (JdbcTemplate shard : shards.all()) {
+                used.addAll(shard.queryForList(USED_HASHES, String.class));
+            }
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofHours(1));
+
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!Files.isRegularFile(file) || file.startsWith(tmp)) continue;
+                String name = file.getFileName().toString();
+                if (!used.contains(name) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);           // every JDK has SHA-256
+        }
+    }
+}
+```
+
+> 🔍 `Channels.newChannel(body)` reads the request straight from Tomcat's input buffer into our
+> one 64 KB buffer. A 20 MB upload uses **64 KB** of memory, not 20 MB.
+
+---
+
+## 🌐 4. `PersonAttachmentController.java`
+
+```java
+package com.example.demo.controller;
+
+import com.example.demo.attachment.AttachmentStore;
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RestController
+@RequestMapping("/api/persons/{id}/attachment")
+public class PersonAttachmentController {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    @Autowired
+    private PersonRepository personRepo;
+
+    @Autowired
+    private AttachmentStore store;
+
+    // ---------- upload ----------
+
+    // NOT @Transactional: a slow upload must not hold a DB connection for minutes
+    @PutMapping
+    public ResponseEntity<Map<String, Object>> upload(@PathVariable Long id, InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, defaultValue = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            String contentType) throws IOException {
+        if (!personRepo.existsById(id)) {
+            return ResponseEntity.notFound().build();   // don't store bytes for nobody
+        }
+
+        AttachmentStore.Blob blob;
+        try {
+            blob = store.store(body);                   // streams to disk — no byte[] anywhere
+        } catch (AttachmentStore.TooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        // Short write at the end; deleted meanwhile → 404, the blob is cleaned up as an orphan
+        Optional<Person> person = personRepo.findById(id);
+        if (person.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Person p = person.get();
+        p.setAttachmentSha256(blob.sha256());
+        p.setAttachmentContentType(MediaType.parseMediaType(contentType).toString());
+        p.setAttachmentSize(blob.size());
+        personRepo.save(p);
+
+        return ResponseEntity.ok()
+                .eTag(blob.sha256())
+                .body(Map.of("sha256", blob.sha256(), "size", blob.size(), "contentType", p.getAttachmentContentType()));
+    }
+
+    @DeleteMapping
+    @Transactional
+    public ResponseEntity<Void> remove(@PathVariable Long id) {
+        return personRepo.findById(id)
+                .map(p -> {
+                    p.setAttachmentSha256(null);        // the file goes away with the next orphan cleanup
+                    p.setAttachmentContentType(null);
+                    p.setAttachmentSize(null);
+                    personRepo.save(p);
+                    return ResponseEntity.noContent().<Void>build();
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // ---------- download ----------
+
+    @GetMapping
+    public void download(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Person p = personRepo.findById(id).orElse(null);
+        if (p == null || p.getAttachmentSha256() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + p.getAttachmentSha256() + "\"";
+        long size = p.getAttachmentSize();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");      // cache, but ask us first
+        // Uploaded content types can't be trusted → never let the browser render e.g. text/html from us
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+
+        // 1️⃣ Client already has exactly these bytes → 304, no body at all
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // 2️⃣ Range: "bytes=0-1023", "bytes=1024-", "bytes=-500" (last 500)
+        long start = 0, end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        boolean partial = range != null && (ifRange == null || ifRange.equals(etag));   // file changed → send all
+        if (partial) {
+            Matcher m = RANGE.matcher(range.trim());
+            if (!m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+                partial = false;                        // multi-range or junk → a plain 200 is allowed
+            } else {
+                if (m.group(1).isEmpty()) {             // suffix: last N bytes
+                    start = Math.max(0, size - Long.parseLong(m.group(2)));
+                } else {
+                    start = Long.parseLong(m.group(1));
+                    if (!m.group(2).isEmpty()) end = Math.min(end, Long.parseLong(m.group(2)));
+                }
+                if (start >= size || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+            }
+        }
+
+        long length = end - start + 1;
+        if (partial) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        response.setContentType(p.getAttachmentContentType());
+        response.setContentLengthLong(length);
+
+        Path file = store.pathOf(p.getAttachmentSha256());
+        send(file, start, length, request, response);
+    }
+
+    /** Same zero-copy trick as the export in 18_Bulk Import Export, but for a slice of the file. */
+    private static void send(Path file, long start, long length,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // 🚀 kernel copies file → socket, the bytes never enter the JVM
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", start + length);    // exclusive
+            return;
+        }
+
+        // Fallback (HTTPS, small files): transferTo lets the JDK pick the best copy path
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start, last = start + length;
+            while (position < last) {
+                position += in.transferTo(position, last - position, out);
+            }
+        }
+    }
+}
+```
+
+> 💡 Why no explicit `MappedByteBuffer`? The target here is the servlet output stream, not a socket
+> or a file. Writing a mapped buffer to it copies the bytes into the stream's buffer anyway —
+> `transferTo` does the same with less code, and Tomcat's sendfile path is the real zero-copy one.
+
+> ⚠️ Keep downloads out of `ZstdCompressionFilter` (`9_Binary Formats and Compression`). It is mapped to
+> `/api/persons/*` and would wrap this endpoint for every `Accept-Encoding: zstd` client:
+> the fallback path gets **buffered in the heap**, a `206` body gets re-encoded so its `Content-Length`
+> no longer matches `Content-Range`, and the sendfile path leaves the wrapper empty.
+> Extend the streaming list from `17_Outbox and SSE Change Feed` — by suffix, the id sits in the middle:
+>
+> ```java
+> // Responses that must reach the client while they are being written — never buffer them
+> private static final List<String> STREAMING_SUFFIXES = List.of(
+>         "/api/persons/changes",      // SSE (17_Outbox and SSE Change Feed)
+>         "/api/persons/export",       // sendfile / transferTo (18_Bulk Import Export)
+>         "/attachment");              // sendfile, Range → 206 (this chapter)
+>
+> @Override
+> protected boolean shouldNotFilter(HttpServletRequest request) {
+>     String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+>     if (accept == null || !accept.contains("zstd")) return true;
+>
+>     String acceptType = request.getHeader(HttpHeaders.ACCEPT);
+>     String uri = request.getRequestURI();
+>     return (acceptType != null && acceptType.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+>             || STREAMING_SUFFIXES.stream().anyMatch(uri::endsWith);
+> }
+> ```
+
+> ⚠️ The blob is content-addressed → it **never changes** under a given name. The `ETag` is therefore
+> always correct, and a `Range` download that continues after a re-upload gets the **whole new file**
+> (thanks to `If-Range`) instead of a mix of old and new bytes.
+
+> ⏳ Deadlines from `28_Request Deadlines` start with the request. A slow 20 MB upload would run out of
+> time before its final `UPDATE` → that's why `DeadlineFilter.shouldNotFilter` already skips `/attachment`.
+
+---
+
+## 🧪 5. Try It
+
+```bash
+# Upload (streamed — try a 15 MB file and watch the heap stay flat)
+curl -X PUT -H "Authorization: Bearer $TOKEN" -H "Content-Type: image/png" \
+     --data-binary @avatar.png http://localhost:8080/api/persons/1/attachment
+# → {"sha256":"3fa9c2...","size":48213,"contentType":"image/png"}
+
+# Download
+curl -i -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/1/attachment -o avatar.png
+# → 200, ETag: "3fa9c2..."
+
+# Again, with the ETag
+curl -i -H "Authorization: Bearer $TOKEN" -H 'If-None-Match: "3fa9c2..."' \
+     http://localhost:8080/api/persons/1/attachment
+# → 304 Not Modified, no body
+
+# First KB only
+curl -i -H "Authorization: Bearer $TOKEN" -H "Range: bytes=0-1023" \
+     http://localhost:8080/api/persons/1/attachment
+# → 206, Content-Range: bytes 0-1023/48213
+```
+
+| Request                        | Response |
+| ------------------------------ | -------- |
+| `Range: bytes=-500`            | `206`, last 500 bytes |
+| `Range: bytes=99999999-`       | `416`, `Content-Range: bytes */48213` |
+| `Range: bytes=0-1,5-9`         | `200`, whole file (multi-range not supported) |
+| 25 MB upload                   | `413 Payload Too Large` |
+
+`GET /api/persons/1` still returns only a few small fields — the picture is **never** loaded with it. 🎉
+
+---
+
+## ✅ Your Task
+
+1. Upload the same file for 2 persons → only **one** file in `attachments/`.
+2. Download a big file with `curl -C -` (resume), kill it halfway, resume → `206`.
+3. Replace person 1's file, wait > 1 h (or lower the cutoff) → the old blob is deleted by `deleteOrphans`.
+4. Take a snapshot (`19_Persistent H2 and Snapshots`) → it stays small. Back up `attachments/` separately
+   (e.g. `rsync` — content-addressed files never change, so only new ones are copied).
@@ -0,0 +1,497 @@
+Data-Size Scaling Benchmarks: 10K → 1M → 10M Persons
+
+Every benchmark so far (`9_...`, `10_...`, `12_...`, `14_...`) used a **handful** of objects in memory.
+Production has a real table that keeps growing. The questions we can't answer yet:
+
+* Does `findById` stay flat at 10M rows? (it should — primary key index)
+* How bad is `findAll` at 1M? At 10M — does it even fit in the heap?
+* Is `save` slower with a big table (index maintenance)?
+* How much does the full stack add on top of the repository — security, MVC, Jackson, Tomcat?
+
+We build **one** JMH suite that answers all of these at 3 data sizes, and a small tool that turns
+the raw results into a **baseline report** we commit. Next time someone changes `Person`,
+`PersonRepository` or the JSON setup, they run the suite and compare. 📈
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `PersonScalingBenchmark` — `@Param rows = 10_000 / 1_000_000 / 10_000_000`
+2. ✅ Seeding with one set-based `INSERT ... SELECT` into a **file** DB per size → seeded once, reused
+3. ✅ 3 layers: **repository**, **MockMvc** (security + MVC + Jackson), real **HTTP** (+ Tomcat + all filters)
+4. ✅ Throughput (ops/s), latency (avg + p99), allocation (B/op via JMH's `gc` profiler)
+5. ✅ `ScalingReport` — JMH JSON → Markdown tables + a **growth exponent** per operation
+6. ✅ Baseline report in `docs/benchmarks/person-scaling.md`
+
+---
+
+## 📦 1. Dependencies
+
+JMH is already there from `9_Binary Formats and Compression`. For MockMvc with security:
+
+```xml
+<dependency>
+    <groupId>org.springframework.security</groupId>
+    <artifactId>spring-security-test</artifactId>
+    <scope>test</scope>
+</dependency>
+```
+
+> The suite uses the **single database** setup (`spring.datasource.url`).
+> Using routing (`15_Read Write Routing`)? Pass `app.datasource.primary.url` instead.
+
+---
+
+## 🏋️ 2. `PersonScalingBenchmark.java` (`src/test/java`)
+
+```java
+package com.example.demo.bench;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.model.Person;
+import com.example.demo.repository.PersonRepository;
+import com.example.demo.security.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})    // ops/s AND latency percentiles
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PersonScalingBenchmark {
+
+    private static final int SEED_CHUNK = 1_000_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    long rows;
+
+    ConfigurableApplicationContext ctx;
+    PersonRepository personRepo;
+    JdbcTemplate jdbc;
+    MockMvc mvc;
+    RequestPostProcessor mvcUser;
+    HttpClient http;
+    String baseUrl;
+    String bearer;
+    long maxId;
+    String twentyIds;
+
+    // ---------- setup ----------
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        ctx = startApp();
+        if (seed(ctx.getBean(JdbcTemplate.class))) {
+            // Startup work (stats, search index...) must see the FULL table → start again
+            ctx.close();
+            ctx = startApp();
+        }
+        jdbc = ctx.getBean(JdbcTemplate.class);
+        personRepo = ctx.getBean(PersonRepository.class);
+        maxId = jdbc.queryForObject("SELECT MAX(id) FROM person", Long.class);
+        twentyIds = LongStream.rangeClosed(1, 20).map(i -> i * (maxId / 20)).mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) ctx).apply(springSecurity()).build();
+        mvcUser = SecurityMockMvcRequestPostProcessors.user("bench").roles("USER");
+
+        // Real HTTP: JwtFilter loads the user from the DB → make sure it exists
+        jdbc.update("MERGE INTO users (username, password, role) KEY (username) VALUES ('bench', '-', 'USER')");
+        bearer = "Bearer " + ctx.getBean(JwtUtil.class).generateToken("bench", "USER");
+        baseUrl = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+        http = HttpClient.newHttpClient();
+    }
+
+    private ConfigurableApplicationContext startApp() {
+        Path db = Path.of("target", "bench", "person-" + rows).toAbsolutePath();
+        return new SpringApplicationBuilder(DemoApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:file:" + db,
+                        "server.port=0",
+                        "app.warmup.enabled=false",           // JMH does its own warm-up
+                        "app.deadline.default=10m",           // don't cut off findAll at 10M
+                        "app.sql-log.sample-rate=0",
+                        "logging.level.access=off")           // measure the app, not the log disk
+                .run();
+    }
+
+    /** Tops the table up to {@code rows}. Returns true if anything was inserted. */
+    private boolean seed(JdbcTemplate jdbc) {
+        long have = jdbc.queryForObject("SELECT COUNT(*) FROM person", Long.class);
+        if (have >= rows) return false;
+
+        // Set-based insert inside H2: no JDBC round trip per row → 10M rows in about a minute
+        for (long from = have + 1; from <= rows; from += SEED_CHUNK) {
+            long to = Math.min(rows, from + SEED_CHUNK - 1);
+            jdbc.update("INSERT INTO person (name, age) SELECT 'Person ' || X, MOD(X, 90) FROM SYSTEM_RANGE(?, ?)",
+                    from, to);
+            System.out.printf("seeded %,d / %,d%n", to, rows);
+        }
+        return true;
+    }
+
+    /** Keep the table at exactly the seeded rows between iterations (save adds rows). */
+    @TearDown(Level.Iteration)
+    public void trim() {
+        jdbc.update("DELETE FROM person WHERE id > ?", maxId);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        ctx.close();
+    }
+
+    long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, maxId + 1);
+    }
+
+    /**
+     * Rows for deleteById, inserted with ONE set-based statement before each iteration.
+     * Not @Setup(Level.Invocation): JMH's own docs warn it distorts µs-scale operations, and an
+     * INSERT per call costs about as much as the delete we want to measure.
+     */
+    @State(Scope.Thread)
+    public static class Victims {
+        static final int POOL = 250_000;               // more than one 2 s iteration can delete
+        long[] ids;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void insert(PersonScalingBenchmark bench) {
+            long after = bench.jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM person", Long.class);
+            bench.jdbc.update("INSERT INTO person (name, age) SELECT 'Victim', 40 FROM SYSTEM_RANGE(1, ?)", POOL);
+            ids = bench.jdbc.queryForList("SELECT id FROM person WHERE id > ? ORDER BY id", Long.class, after)
+                    .stream().mapToLong(Long::longValue).toArray();
+            next = 0;                                  // leftovers are removed by trim()
+        }
+
+        long take() {
+            if (next == ids.length) {
+                throw new IllegalStateException("Victim pool exhausted, raise Victims.POOL");
+            }
+            return ids[next++];
+        }
+    }
+
+    // ---------- 1) repository ----------
+
+    @Benchmark
+    public Optional<Person> repoFindById() {
+        return personRepo.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Person> repoFindAll() {
+        return personRepo.findAll();                   // O(n) on purpose — this is the one to watch
+    }
+
+    @Benchmark
+    public Person repoSave() {
+        Person p = new Person();
+        p.setName("Bench");
+        p.setAge(30);
+        return personRepo.save(p);
+    }
+
+    @Benchmark
+    public void repoDeleteById(Victims victims) {
+        personRepo.deleteById(victims.take());        // an array read — nothing else in the measured time
+    }
+
+    // ---------- 2) MockMvc: security + DispatcherServlet + Jackson, no network ----------
+
+    @Benchmark
+    public byte[] mvcGetById() throws Exception {
+        return mvc.perform(get("/api/persons/{id}", randomId()).with(mvcUser))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] mvcGetByIds() throws Exception {
+        return mvc.perform(get("/api/persons").param("ids", twentyIds).with(mvcUser))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] mvcGetAll() throws Exception {
+        return mvc.perform(get("/api/persons").with(mvcUser))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    // ---------- 3) real HTTP: Tomcat + every filter + JwtFilter ----------
+
+    @Benchmark
+    public byte[] httpGetById() throws Exception {
+        return send("/api/persons/" + randomId());
+    }
+
+    @Benchmark
+    public byte[] httpGetAll() throws Exception {
+        return send("/api/persons");
+    }
+
+    private byte[] send(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", bearer)
+                .GET().build();
+        return http.send(request, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    // ---------- runner ----------
+
+    public static void main(String[] args) throws Exception {
+        Path out = Path.of("target", "bench", "person-scaling.json");
+        Files.createDirectories(out.getParent());
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(PersonScalingBenchmark.class.getSimpleName() + "\\." + System.getProperty("bench.include", ".*"))
+                .addProfiler("gc")                      // 👈 gc.alloc.rate.norm = bytes allocated per op
+                .resultFormat(ResultFormatType.JSON)
+                .result(out.toString());
+        String rows = System.getProperty("bench.rows");  // e.g. -Dbench.rows=10000,1000000
+        if (rows != null) {
+            options.param("rows", rows.split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
+```
+
+### 🔍 Things that would make the numbers lie (and how we avoid them)
+
+| Trap                                              | Avoided by                                          |
+| ------------------------------------------------- | --------------------------------------------------- |
+| Seeding counted as benchmark time                 | `@Setup(Level.Trial)`, file DB reused across runs   |
+| `save` makes the table grow during the run        | `trim()` after every iteration                      |
+| `deleteById` runs out of rows / measures the insert | `Victims`: one batch insert per **iteration**, not per call |
+| Always the same id → always in the page cache     | `randomId()` over the whole range                   |
+| Startup caches built from a half-seeded table     | app restarted after seeding                         |
+| Results eliminated as dead code                   | every `@Benchmark` **returns** its result           |
+| Log I/O measured instead of the app               | access log off, SQL sampling 0                      |
+
+> ⚠️ `repoFindAll` / `mvcGetAll` / `httpGetAll` at **10M** rows load 10M entities. With `-Xmx4g`
+> that may end in `OutOfMemoryError` — and that **is** a result. Write it in the report as `OOM`.
+
+---
+
+## ▶️ 3. Run It
+
+```bash
+# Everything (takes a long time: 9 benchmarks × 2 modes × 3 sizes)
+./mvnw test-compile exec:java -Dexec.classpathScope=test \
+    -Dexec.mainClass=com.example.demo.bench.PersonScalingBenchmark
+
+# Only the repository layer, only the two smaller sizes
+./mvnw test-compile exec:java -Dexec.classpathScope=test \
+    -Dexec.mainClass=com.example.demo.bench.PersonScalingBenchmark \
+    -Dbench.include='repo.*' -Dbench.rows=10000,1000000
+```
+
+The first run per size creates `target/bench/person-<rows>.mv.db` (10M rows ≈ 500 MB on disk).
+Later runs reuse it → no re-seeding.
+
+Raw results: `target/bench/person-scaling.json`.
+
+---
+
+## 📈 4. `ScalingReport.java` — JSON → Markdown (`src/test/java`)
+
+One table per operation. The **exponent** `k` says how time grows with the table:
+`time ∝ rowsᵏ`, computed between two sizes as `log(t₂/t₁) / log(n₂/n₁)`.
+
+| k      | Means                  | Expected for        |
+| ------ | ---------------------- | ------------------- |
+| ≈ 0    | flat — O(1) / O(log n) | `findById`, `save`  |
+| ≈ 1    | linear — O(n)          | `findAll`           |
+| > 1    | worse than linear 🚨    | never OK            |
+
+```java
+package com.example.demo.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ScalingReport {
+
+    static final class Row {
+        double opsPerSec = Double.NaN;
+        double avgMicros = Double.NaN;
+        double p99Micros = Double.NaN;
+        double bytesPerOp = Double.NaN;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path in = Path.of(args.length > 0 ? args[0] : "target/bench/person-scaling.json");
+        Path out = Path.of(args.length > 1 ? args[1] : "docs/benchmarks/person-scaling.md");
+
+        JsonNode results = new ObjectMapper().readTree(in.toFile());
+        Map<String, TreeMap<Long, Row>> byBenchmark = new TreeMap<>();
+        String jdk = "?", vm = "?";
+
+        for (JsonNode r : results) {
+            String name = r.get("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.') + 1);
+            long rows = r.get("params").get("rows").asLong();
+            Row row = byBenchmark.computeIfAbsent(name, k -> new TreeMap<>()).computeIfAbsent(rows, k -> new Row());
+            jdk = r.get("jdkVersion").asText();
+            vm = r.get("vmName").asText();
+
+            JsonNode primary = r.get("primaryMetric");
+            if (r.get("mode").asText().equals("thrpt")) {
+                row.opsPerSec = primary.get("score").asDouble() * 1_000_000;            // ops/µs → ops/s
+            } else {                                                                     // "sample", µs/op
+                row.avgMicros = primary.get("score").asDouble();
+                row.p99Micros = primary.get("scorePercentiles").get("99.0").asDouble();
+                row.bytesPerOp = allocation(r.get("secondaryMetrics"));
+            }
+        }
+
+        StringBuilder md = new StringBuilder();
+        md.append("# Person scaling baseline\n\n")
+          .append("- Date: ").append(LocalDate.now()).append('\n')
+          .append("- JDK: ").append(jdk).append(" (").append(vm).append(")\n")
+          .append("- Machine: _fill in: CPU, cores, RAM, disk_\n\n");
+
+        byBenchmark.forEach((name, sizes) -> {
+            md.append("## ").append(name).append("\n\n")
+              .append("| rows | ops/s | avg µs | p99 µs | B/op | k (vs previous) |\n")
+              .append("| ---: | ----: | -----: | -----: | ---: | --------------: |\n");
+            Map.Entry<Long, Row> previous = null;
+            for (Map.Entry<Long, Row> e : sizes.entrySet()) {
+                Row r = e.getValue();
+                String k = previous == null ? "—" : String.format("%.2f",
+                        Math.log(r.avgMicros / previous.getValue().avgMicros)
+                                / Math.log((double) e.getKey() / previous.getKey()));
+                md.append(String.format("| %,d | %s | %s | %s | %s | %s |%n", e.getKey(),
+                        fmt(r.opsPerSec, "%,.0f"), fmt(r.avgMicros, "%,.1f"), fmt(r.p99Micros, "%,.1f"),
+                        fmt(r.bytesPerOp, "%,.0f"), k));
+                previous = e;
+            }
+            md.append('\n');
+        });
+
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, md);
+        System.out.println("Wrote " + out);
+    }
+
+    // JMH 1.37 calls it "gc.alloc.rate.norm"; older versions prefix a "·"
+    private static double allocation(JsonNode secondary) {
+        if (secondary == null) return Double.NaN;
+        for (Iterator<String> it = secondary.fieldNames(); it.hasNext(); ) {
+            String key = it.next();
+            if (key.endsWith("gc.alloc.rate.norm")) return secondary.get(key).get("score").asDouble();
+        }
+        return Double.NaN;
+    }
+
+    private static String fmt(double value, String format) {
+        return Double.isNaN(value) ? "OOM / n/a" : String.format(format, value);
+    }
+}
+```
+
+```bash
+./mvnw exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.demo.bench.ScalingReport
+```
+
+---
+
+## 📋 5. The Baseline — `docs/benchmarks/person-scaling.md`
+
+Commit the generated file **together with** the machine description. The first version of the file
+is the template below — there are deliberately **no numbers** in this chapter: numbers from
+someone else's laptop are worse than no numbers. Run the suite on **your** reference machine,
+generate the report, replace the template, commit.
+
+```markdown
+# Person scaling baseline
+
+- Date: _yyyy-mm-dd_
+- JDK: _version (vm)_
+- Machine: _CPU, cores, RAM, disk_
+- Commit: _git sha the numbers belong to_
+
+## repoFindById
+
+| rows | ops/s | avg µs | p99 µs | B/op | k (vs previous) |
+| ---: | ----: | -----: | -----: | ---: | --------------: |
+| 10,000 | _run the suite_ | | | | — |
+| 1,000,000 | | | | | _expect ≈ 0_ |
+| 10,000,000 | | | | | _expect ≈ 0_ |
+
+## repoFindAll
+
+| rows | ops/s | avg µs | p99 µs | B/op | k (vs previous) |
+| ---: | ----: | -----: | -----: | ---: | --------------: |
+| 10,000 | _run the suite_ | | | | — |
+| 1,000,000 | | | | | _expect ≈ 1_ |
+| 10,000,000 | | | | | _expect ≈ 1 or OOM_ |
+
+_(... one table per benchmark: repoSave, repoDeleteById, mvcGetById, mvcGetByIds, mvcGetAll,
+httpGetById, httpGetAll)_
+```
+
+### 🔁 Comparing against the baseline
+
+```bash
+# after your change, same machine:
+./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.demo.bench.PersonScalingBenchmark
+./mvnw exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.demo.bench.ScalingReport \
+    -Dexec.args="target/bench/person-scaling.json target/bench/person-scaling.md"
+diff -u docs/benchmarks/person-scaling.md target/bench/person-scaling.md
+```
+
+Rules of thumb for the review:
+
+* `k` of a flat operation jumps from ≈0 to ≈1 → something now scans the table 🚨
+* `B/op` of `mvcGetById` grows → someone added allocation on the hot path
+* `http*` minus `mvc*` = Tomcat + filter cost → grows after adding a filter? check `24`–`28`
+* Noise between two runs on the same machine is often ±5–10 % → don't chase smaller differences
+
+---
+
+## ✅ Your Task
+
+1. Run `-Dbench.include='repo.*' -Dbench.rows=10000,1000000` first (minutes, not hours).
+2. Generate the report and look at `k` for `repoFindById` vs `repoFindAll`.
+3. Replace `findAll` in `getAll` with the paged `findPage` from `16_Sharding Person` (or `PageRequest.of(0, 100)`),
+   re-run `mvcGetAll` → `k` should drop to ≈ 0.
+4. Commit `docs/benchmarks/person-scaling.md` with your machine's numbers as the team baseline.
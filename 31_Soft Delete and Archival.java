@@ -0,0 +1,457 @@
+Hot / Cold Partitioning: Soft-Delete + Background Archival
+
+Two problems with the `person` table:
+
+1. `DELETE /api/persons/{id}` removes the row **for ever** — "who was person 42 last year?" → gone 😢
+2. Nothing ever leaves the table → every index, every `findAll`, every startup rebuild
+   (`22_Incremental Person Stats`, `23_Trigram Name Search`) keeps getting bigger
+
+We split the data into two **partitions**:
+
+```
+person          (HOT)   active rows only*  ← every normal query, small indexes ⚡
+person_archive  (COLD)  deleted / old rows ← only when someone explicitly asks for history
+```
+
+\* plus soft-deleted rows for a short while, until the archiver moves them.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ **Soft delete**: `DELETE` sets `deleted_at` instead of removing the row; Hibernate hides those rows everywhere
+2. ✅ `PersonArchiver` — background job, moves deleted (and optionally cold) rows to `person_archive`
+   in **small batches**, each batch its own short transaction
+3. ✅ `?includeArchived=true` on `GET /api/persons` and `GET /api/persons/{id}` → full history
+4. ✅ `POST /api/admin/persons/{id}/restore` → back to the hot table
+
+---
+
+## ⚙️ 1. application.properties
+
+```properties
+app.archive.interval=10m
+app.archive.batch-size=1000
+app.archive.pause=50ms
+# Also archive rows nobody changed for this long (not set → only deleted rows are archived)
+#app.archive.cold-after=365d
+```
+
+---
+
+## 🗂️ 2. Migration — `V7__person_soft_delete.sql`
+
+```sql
+ALTER TABLE person ADD COLUMN deleted_at TIMESTAMP WITH TIME ZONE;
+ALTER TABLE person ADD COLUMN updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+CREATE INDEX ix_person_deleted ON person (deleted_at);
+CREATE INDEX ix_person_updated ON person (updated_at);
+
+-- Same columns as person (incl. the attachment metadata from V6) + when it was archived
+CREATE TABLE person_archive (
+    id                      BIGINT PRIMARY KEY,       -- same id as before → history stays linkable
+    name                    VARCHAR(255),
+    age                     INT NOT NULL,
+    attachment_sha256       VARCHAR(64),
+    attachment_content_type VARCHAR(255),
+    attachment_size         BIGINT,
+    updated_at              TIMESTAMP WITH TIME ZONE NOT NULL,
+    deleted_at              TIMESTAMP WITH TIME ZONE,
+    archived_at             TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX ix_person_archive_archived ON person_archive (archived_at);
+```
+
+---
+
+## 🧱 3. `Person` — soft delete in 2 annotations
+
+```java
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.Instant;
+
+@Entity
+@SQLDelete(sql = "UPDATE person SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?")   // delete() → UPDATE
+@SQLRestriction("deleted_at IS NULL")                                               // every query → hot rows only
+public class Person {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+    private int age;
+
+    // attachment metadata from 29_Person Attachments ...
+
+    @JsonIgnore
+    private Instant updatedAt;
+
+    @JsonIgnore
+    private Instant deletedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();                    // "cold" = not touched for a long time
+    }
+
+    // Getters and Setters
+}
+```
+
+(`com.fasterxml.jackson.annotation.JsonIgnore` → the JSON of a person doesn't change)
+
+> `@SQLRestriction` is Hibernate 6.3+ (Spring Boot 3.2+). Older: `@Where(clause = "deleted_at IS NULL")`.
+
+What changes in `PersonController`? **Nothing.** `delete` still calls `personRepo.delete(existing)`,
+Hibernate runs the `UPDATE` instead. `findById`, `findAll`, `findAllById` skip deleted rows automatically.
+The change feed (`17`), stats (`22`) and search index (`23`) still get their "deleted" call as before.
+
+### ⚠️ Raw SQL doesn't know about `@SQLRestriction`
+
+Everything written with `JdbcTemplate` needs the filter by hand:
+
+| Where                                           | Add                                      |
+| ----------------------------------------------- | ---------------------------------------- |
+| `PersonStats.rebuild()` (`22`)                   | `WHERE deleted_at IS NULL`               |
+| `PersonNameIndex.build()` (`23`)                 | `WHERE deleted_at IS NULL`               |
+| `PersonExporter` cursor (`18`)                   | `WHERE deleted_at IS NULL`               |
+| `AttachmentStore.deleteOrphans()` (`29`)         | also keep hashes used in `person_archive` (below) |
+| Shards (`16_Sharding Person`)                    | not covered here — the fragment uses its own SQL |
+
+```java
+// AttachmentStore — archived persons still own their files (used by deleteOrphans, shards loop unchanged)
+private static final String USED_HASHES = """
+        SELECT attachment_sha256 FROM person WHERE attachment_sha256 IS NOT NULL
+        UNION
+        SELECT attachment_sha256 FROM person_archive WHERE attachment_sha256 IS NOT NULL
+        """;
+```
+
+---
+
+## 🚚 4. `PersonArchiver.java`
+
+```java
+package com.example.demo.archive;
+
+import com.example.demo.search.PersonNameIndex;
+import com.example.demo.stats.PersonStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class PersonArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonArchiver.class);
+
+    private record Candidate(long id, int age, boolean live) {}
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private NamedParameterJdbcTemplate named;
+
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Autowired
+    private PersonStats stats;
+
+    @Autowired
+    private PersonNameIndex nameIndex;
+
+    @Value("${app.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.archive.pause:50ms}")
+    private Duration pause;
+
+    @Value("${app.archive.cold-after:#{null}}")
+    private Duration coldAfter;
+
+    @Value("${app.archive.interval:10m}")
+    private Duration interval;
+
+    // Own thread, NOT @Scheduled: a backlog of 2M rows keeps this loop busy for minutes. On Spring's
+    // single scheduler thread that would stall revocation sync (13), change-feed polling (17)
+    // and replica lag checks (15) for just as long
+    private final ScheduledExecutorService runner =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "person-archiver"));
+
+    @PostConstruct
+    void start() {
+        runner.scheduleWithFixedDelay(this::runSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        runner.shutdownNow();                              // interrupts the pause; finished batches are committed
+    }
+
+    private void runSafely() {
+        try {
+            archive();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // An exception escaping scheduleWithFixedDelay cancels ALL later runs → log and try next time
+            log.warn("Archiving failed, next try in {}", interval, e);
+        }
+    }
+
+    public void archive() throws InterruptedException {
+        int total = 0, moved;
+        do {
+            moved = tx.execute(status -> moveBatch());     // 1 batch = 1 short transaction
+            total += moved;
+            if (moved > 0) {
+                Thread.sleep(pause.toMillis());            // let normal traffic get the locks in between
+            }
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            log.info("Archived {} persons", total);
+        }
+    }
+
+    private int moveBatch() {
+        // cold-after not set → a date nothing is older than → only deleted rows qualify
+        Timestamp coldBefore = coldAfter == null
+                ? new Timestamp(0)
+                : Timestamp.from(Instant.now().minus(coldAfter));
+
+        // FOR UPDATE: a PUT can't change these rows between our copy and our delete
+        List<Candidate> batch = jdbc.query("""
+                SELECT id, age, deleted_at FROM person
+                WHERE deleted_at IS NOT NULL OR updated_at < ?
+                ORDER BY id
+                FETCH FIRST ? ROWS ONLY
+                FOR UPDATE
+                """,
+                (rs, i) -> new Candidate(rs.getLong("id"), rs.getInt("age"), rs.getTimestamp("deleted_at") == null),
+                coldBefore, batchSize);
+        if (batch.isEmpty()) return 0;
+
+        Map<String, Object> ids = Map.of("ids", batch.stream().map(Candidate::id).toList());
+        named.update("""
+                INSERT INTO person_archive (id, name, age, attachment_sha256, attachment_content_type,
+                                            attachment_size, updated_at, deleted_at, archived_at)
+                SELECT id, name, age, attachment_sha256, attachment_content_type,
+                       attachment_size, updated_at, deleted_at, CURRENT_TIMESTAMP
+                FROM person WHERE id IN (:ids)
+                """, ids);
+        named.update("DELETE FROM person WHERE id IN (:ids)", ids);
+
+        // Deleted rows already left stats/search when they were deleted.
+        // COLD live rows leave the hot set only now (applied after commit, like in the controller).
+        for (Candidate c : batch) {
+            if (c.live()) {
+                stats.onDelete(c.age());
+                nameIndex.onDeleted(c.id());
+            }
+        }
+        return batch.size();
+    }
+}
+```
+
+### 🔍 Why small batches?
+
+| One big `INSERT ... SELECT` + `DELETE` for 2M rows | 1000 rows per transaction             |
+| -------------------------------------------------- | ------------------------------------- |
+| locks 2M rows for minutes                          | locks 1000 rows for milliseconds      |
+| a huge undo log, one giant commit                  | small commits                         |
+| fails at 90 % → **everything** rolled back          | fails → only that batch, retry later  |
+
+---
+
+## 📜 5. History: `PersonHistory.java`
+
+```java
+package com.example.demo.archive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class PersonHistory {
+
+    public enum Status { ACTIVE, DELETED, ARCHIVED }
+
+    public record PersonRecord(long id, String name, int age, Status status, Instant deletedAt, Instant archivedAt) {}
+
+    private static final String ALL = """
+            SELECT id, name, age, deleted_at, CAST(NULL AS TIMESTAMP WITH TIME ZONE) AS archived_at FROM person
+            UNION ALL
+            SELECT id, name, age, deleted_at, archived_at FROM person_archive
+            """;
+
+    private static final RowMapper<PersonRecord> MAPPER = (rs, i) -> {
+        Instant deletedAt = instant(rs.getTimestamp("deleted_at"));
+        Instant archivedAt = instant(rs.getTimestamp("archived_at"));
+        Status status = archivedAt != null ? Status.ARCHIVED : deletedAt != null ? Status.DELETED : Status.ACTIVE;
+        return new PersonRecord(rs.getLong("id"), rs.getString("name"), rs.getInt("age"), status, deletedAt, archivedAt);
+    };
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Transactional(readOnly = true)
+    public List<PersonRecord> findAll() {
+        return jdbc.query("SELECT * FROM (" + ALL + ") ORDER BY id", MAPPER);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<PersonRecord> findById(long id) {
+        return jdbc.query("SELECT * FROM (" + ALL + ") WHERE id = ?", MAPPER, id).stream().findFirst();
+    }
+
+    /** Soft-deleted → undelete. Archived → move back. Returns false if the id is unknown. */
+    @Transactional
+    public boolean restore(long id) {
+        int n = jdbc.update(
+                "UPDATE person SET deleted_at = NULL, updated_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NOT NULL",
+                id);
+        if (n == 0) {
+            n = jdbc.update("""
+                    INSERT INTO person (id, name, age, attachment_sha256, attachment_content_type, attachment_size, updated_at)
+                    SELECT id, name, age, attachment_sha256, attachment_content_type, attachment_size, CURRENT_TIMESTAMP
+                    FROM person_archive WHERE id = ?
+                    """, id);
+            jdbc.update("DELETE FROM person_archive WHERE id = ?", id);
+        }
+        return n > 0;
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+}
+```
+
+---
+
+## 🌐 6. Endpoints
+
+`PersonController` — new handlers only, the hot ones stay as they are.
+`params = "includeArchived=true"` → Spring picks these **only** when the flag is set:
+
+```java
+@Autowired
+private PersonHistory history;
+
+@GetMapping(params = "includeArchived=true")
+public List<PersonHistory.PersonRecord> getAllWithHistory() {
+    return history.findAll();
+}
+
+@GetMapping(value = "/{id}", params = "includeArchived=true")
+public ResponseEntity<PersonHistory.PersonRecord> getByIdWithHistory(@PathVariable Long id) {
+    return history.findById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+}
+```
+
+Restore (`/api/admin/**` → ADMIN only):
+
+```java
+@RestController
+@RequestMapping("/api/admin/persons")
+public class PersonArchiveAdminController {
+
+    @Autowired
+    private PersonHistory history;
+
+    @Autowired
+    private PersonRepository personRepo;
+
+    @Autowired
+    private PersonStats stats;
+
+    @Autowired
+    private PersonNameIndex nameIndex;
+
+    @PostMapping("/{id}/restore")
+    @Transactional
+    public ResponseEntity<Person> restore(@PathVariable Long id) {
+        if (!history.restore(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Person person = personRepo.findById(id).orElseThrow();     // hot again → visible to JPA
+        stats.onCreate(person.getAge());
+        nameIndex.onSaved(person.getId(), person.getName());
+        return ResponseEntity.ok(person);
+    }
+}
+```
+
+---
+
+## 🧪 7. Try It
+
+```bash
+curl -X DELETE -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/2
+
+curl -H "Authorization: Bearer $TOKEN" http://localhost:8080/api/persons/2
+# → 404 (hot path doesn't see it)
+
+curl -H "Authorization: Bearer $TOKEN" "http://localhost:8080/api/persons/2?includeArchived=true"
+# → {"id":2,"name":"Bob","age":15,"status":"DELETED","deletedAt":"2026-10-19T09:12:03Z","archivedAt":null}
+
+# ... after the next archiver run:
+# → {"id":2,"name":"Bob","age":15,"status":"ARCHIVED","deletedAt":"2026-10-19T09:12:03Z","archivedAt":"2026-10-19T09:20:00Z"}
+
+curl -X POST -H "Authorization: Bearer $ADMIN_TOKEN" http://localhost:8080/api/admin/persons/2/restore
+# → Bob is back, same id
+```
+
+| Query                              | Reads                               |
+| ---------------------------------- | ----------------------------------- |
+| `GET /api/persons`                 | `person` where `deleted_at IS NULL` |
+| `GET /api/persons?includeArchived=true` | `person` ∪ `person_archive`    |
+| `/stats`, `/search`                | in-memory, hot rows only            |
+
+---
+
+## ✅ Your Task
+
+1. Delete 3 persons, check `SELECT COUNT(*) FROM person` (still there) → wait for the archiver → moved.
+2. Set `app.archive.cold-after=1m`, wait 2 minutes → untouched persons move too; `/stats` count goes down.
+3. Seed 1M rows (`30_Data-Size Scaling Benchmarks`), soft-delete 900K, run the archiver
+   → compare `repoFindAll` and the `.mv.db` size before/after (`SHUTDOWN COMPACT` to shrink the file).
+4. `GET /api/persons?includeArchived=true` loads the **whole** history — add `page`/`size` before you
+   have a big archive.
@@ -0,0 +1,307 @@
+Basic Auth — Verified-Credential Cache
+
+With `httpBasic()` the browser/Postman sends `Authorization: Basic ...` on **every** request.
+Spring then runs `BCryptPasswordEncoder.matches(...)` every time — ~100 ms of CPU on purpose.
+
+➡️ 1 core ≈ 10 requests/second. Not great for an API! 🐢
+
+Idea: after a password is verified **once**, remember that fact for a short time.
+The next call with the same username + password is just a hash lookup. ⚡
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `CachingAuthenticationProvider` – wraps the normal BCrypt check
+2. ✅ Cache key = **HMAC-SHA256(serverKey, username + password)** (never the raw password!)
+3. ✅ Short TTL + bounded size (Caffeine)
+4. ✅ Cache cleared when a user is updated / deleted / changes password
+5. ✅ Opt-in with one property
+
+---
+
+## 📦 1. Dependency (`pom.xml`)
+
+Spring Boot already manages the version:
+
+```xml
+<dependency>
+    <groupId>com.github.ben-manes.caffeine</groupId>
+    <artifactId>caffeine</artifactId>
+</dependency>
+```
+
+---
+
+## ⚙️ 2. application.properties
+
+```properties
+security.auth-cache.enabled=true
+security.auth-cache.ttl=5m
+security.auth-cache.max-size=10000
+```
+
+> Keep the TTL short. A revoked password can still work until its entry expires
+> (unless you change it through the manager in step 5, which evicts immediately).
+
+---
+
+## 🔑 3. `CachingAuthenticationProvider.java`
+
+```java
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;          // the real BCrypt check
+    private final Cache<String, Authentication> verified;   // HMAC key -> authenticated token
+    private final SecretKeySpec hmacKey;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, Duration ttl, long maxSize) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)      // ✅ short TTL
+                .maximumSize(maxSize)       // ✅ bounded memory
+                .build();
+
+        // 🔒 Random per-process key: a heap dump of the cache is useless to an attacker
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        String key = cacheKey(username, credentials.toString());
+        Authentication cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return cached;                  // ⚡ hash lookup, no BCrypt
+        }
+
+        Authentication result = delegate.authenticate(authentication);  // 🐢 BCrypt (may throw)
+        if (result != null && result.isAuthenticated()) {
+            // Store a copy WITHOUT the password
+            UsernamePasswordAuthenticationToken safe = UsernamePasswordAuthenticationToken.authenticated(
+                    result.getPrincipal(), null, result.getAuthorities());
+            safe.setDetails(result.getDetails());
+            verified.put(key, safe);
+            return safe;
+        }
+        return result;                      // ❌ failures are never cached
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    /** Drop every cached login of this user (called when the user changes). */
+    public void evict(String username) {
+        verified.asMap().values().removeIf(auth -> auth.getName().equals(username));
+    }
+
+    public void evictAll() {
+        verified.invalidateAll();
+    }
+
+    private String cacheKey(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(hmacKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);           // separator: "ab"+"c" != "a"+"bc"
+            mac.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
+```
+
+> `evict()` walks the values, so it is O(cache size) — fine, because users change rarely
+> while logins happen all the time.
+
+---
+
+## 👥 4. `CacheEvictingUserDetailsManager.java`
+
+Any change to a user must throw away its cached logins.
+
+```java
+package com.example.demo.config;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+public class CacheEvictingUserDetailsManager extends InMemoryUserDetailsManager {
+
+    private CachingAuthenticationProvider cache;   // null when the cache is disabled
+
+    public CacheEvictingUserDetailsManager(UserDetails... users) {
+        super(users);
+    }
+
+    public void setCache(CachingAuthenticationProvider cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        super.updateUser(user);
+        evict(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        super.deleteUser(username);
+        evict(username);
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated = super.updatePassword(user, newPassword);
+        evict(user.getUsername());
+        return updated;
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        super.changePassword(oldPassword, newPassword);
+        if (cache != null) cache.evictAll();   // current user unknown here → clear everything
+    }
+
+    private void evict(String username) {
+        if (cache != null) cache.evict(username);
+    }
+}
+```
+
+---
+
+## 🛡️ 5. Updated `SecurityConfig.java`
+
+Same as in `5_Basic Auth`, plus the opt-in provider:
+
+```java
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.userdetails.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.time.Duration;
+
+@Configuration
+public class SecurityConfig {
+
+    @Bean
+    public CacheEvictingUserDetailsManager userDetailsService() {
+        UserDetails user = User.builder()
+                .username("user")
+                .password(passwordEncoder().encode("1234"))
+                .roles("USER")
+                .build();
+
+        UserDetails admin = User.builder()
+                .username("admin")
+                .password(passwordEncoder().encode("admin123"))
+                .roles("ADMIN")
+                .build();
+
+        return new CacheEvictingUserDetailsManager(user, admin);
+    }
+
+    // ✅ Only created when security.auth-cache.enabled=true
+    @Bean
+    @ConditionalOnProperty(name = "security.auth-cache.enabled", havingValue = "true")
+    public CachingAuthenticationProvider cachingAuthenticationProvider(
+            CacheEvictingUserDetailsManager users,
+            @Value("${security.auth-cache.ttl:5m}") Duration ttl,
+            @Value("${security.auth-cache.max-size:10000}") long maxSize) {
+
+        DaoAuthenticationProvider bcrypt = new DaoAuthenticationProvider();
+        bcrypt.setUserDetailsService(users);
+        bcrypt.setPasswordEncoder(passwordEncoder());
+
+        CachingAuthenticationProvider cache = new CachingAuthenticationProvider(bcrypt, ttl, maxSize);
+        users.setCache(cache);
+        return cache;
+    }
+
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        return http
+                .csrf().disable()
+                .authorizeHttpRequests(auth -> auth
+                    .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                    .requestMatchers("/api/user/**").hasAnyRole("USER", "ADMIN")
+                    .anyRequest().authenticated()
+                )
+                .httpBasic()
+                .and().build();
+    }
+
+    @Bean
+    public BCryptPasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+}
+```
+
+> When an `AuthenticationProvider` bean exists, Spring Boot uses it instead of building
+> its own `DaoAuthenticationProvider`. No bean (property off) → old behaviour. ✅
+
+---
+
+## 🔍 How It Works
+
+| Request                               | What runs                          | Cost        |
+| ------------------------------------- | ---------------------------------- | ----------- |
+| 1st call `user:1234`                  | HMAC + BCrypt, result cached       | ~100 ms     |
+| Next calls `user:1234` (within TTL)   | HMAC + map lookup                  | ~1 µs       |
+| Wrong password                        | HMAC + BCrypt, **not** cached      | ~100 ms     |
+| `updateUser` / `deleteUser` / new pwd | entries of that user evicted       | —           |
+| TTL passed                            | entry gone → BCrypt again          | ~100 ms     |
+
+### ⚠️ Security notes
+
+* Raw passwords are **never** stored — only an HMAC with a random in-memory key.
+* Failed logins are not cached, so brute force still pays full BCrypt price.
+* Cached tokens have `credentials = null` (like Spring's `eraseCredentials`).
+
+---
+
+## ✅ Your Task
+
+1. Add Caffeine and set `security.auth-cache.enabled=true`.
+2. Call `/api/user/hello` 100 times with Basic auth (Postman runner or `ab -n 100 -A user:1234`).
+3. Compare total time with the property `true` vs `false`.
+4. Call `userDetailsService.deleteUser("user")` and check the next call returns **401**.
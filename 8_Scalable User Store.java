@@ -0,0 +1,289 @@
+Scalable User Store — Lazy, Pre-Hashed, Hot-Reloaded
+
+In `5_Basic Auth` every user is created like this at startup:
+
+```java
+.password(passwordEncoder().encode("1234"))
+```
+
+`encode()` is BCrypt → ~100 ms **per user**.
+1,000 users ≈ 2 minutes of boot time. 10,000 users ≈ 17 minutes. 😱
+
+Fix:
+
+* Hash passwords **once, offline** and keep only the hashes in a file.
+* At runtime just **read** the hashes (no BCrypt at boot!).
+* Load the file **lazily** on the first login, not at startup.
+* Watch the file and **hot-reload** changes — no restart to add a user.
+
+---
+
+## 🎯 What We'll Build
+
+1. ✅ `users.txt` – pre-hashed credentials
+2. ✅ `HashUsers` – small offline tool that produces that file
+3. ✅ `FileUserDetailsService` – `ConcurrentHashMap` store, lazy load, hot reload
+4. ✅ Plug it into `SecurityConfig` instead of `InMemoryUserDetailsManager`
+
+---
+
+## 📄 1. The Credential File
+
+One user per line: `username:bcryptHash:ROLE1,ROLE2`
+
+```
+# config/users.txt
+user:$2a$10$Dow1Jn0yS6vD9l3t1Gp6XeC2zH8xZGqJ0iJ8m4b6p8eJpG0m0cE6K:USER
+admin:$2a$10$7xLk8cP6l1cQ2oQm8T2p9eC1x3Yd5f7c5VvB0z1a2b3c4d5e6f7g8:ADMIN
+```
+
+> The hashes above are only examples — generate your own with the tool below.
+> BCrypt hashes never contain `:` so splitting on `:` is safe.
+
+---
+
+## 🛠️ 2. `HashUsers.java` (run offline, once)
+
+Reads plain `username:password:roles` lines and prints the hashed version.
+
+```java
+package com.example.demo.tools;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class HashUsers {
+    public static void main(String[] args) throws IOException {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        List<String> lines = Files.readAllLines(Path.of(args[0]));   // plain-users.txt
+
+        for (String line : lines) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] parts = line.split(":", 3);
+            System.out.println(parts[0] + ":" + encoder.encode(parts[1]) + ":" + parts[2]);
+        }
+    }
+}
+```
+
+```bash
+java -cp target/classes:... com.example.demo.tools.HashUsers plain-users.txt > config/users.txt
+rm plain-users.txt   # 🔒 never keep plain passwords around
+```
+
+---
+
+## 🗂️ 3. `FileUserDetailsService.java`
+
+```java
+package com.example.demo.config;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class FileUserDetailsService implements UserDetailsService {
+
+    private final Path file;
+    private final Map<String, UserDetails> users = new ConcurrentHashMap<>();  // lock-free reads
+
+    private volatile boolean loaded = false;
+    private volatile FileTime lastModified;
+    private Consumer<String> onUserChanged = username -> { };
+
+    public FileUserDetailsService(Path file) {
+        this.file = file;
+    }
+
+    /** Called with the username of every user that changed or disappeared on reload. */
+    public void setOnUserChanged(Consumer<String> onUserChanged) {
+        this.onUserChanged = onUserChanged;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!loaded) {
+            loadOnce();                      // 💤 lazy: first login pays, boot doesn't
+        }
+        UserDetails user = users.get(username);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        // Return a copy: Spring erases the password on the returned object after login
+        return User.withUserDetails(user).build();
+    }
+
+    private synchronized void loadOnce() {
+        if (!loaded) {
+            reload();
+            loaded = true;
+        }
+    }
+
+    // 🔁 Hot reload: only re-reads the file when its timestamp changed
+    @Scheduled(fixedDelayString = "${security.users.reload-interval-ms:10000}")
+    public void reloadIfChanged() throws IOException {
+        if (loaded && !Files.getLastModifiedTime(file).equals(lastModified)) {
+            synchronized (this) {
+                reload();
+            }
+        }
+    }
+
+    private void reload() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            Map<String, UserDetails> fresh = parse();
+
+            // Update in place → readers never see an empty map
+            fresh.forEach((name, user) -> {
+                UserDetails old = users.put(name, user);
+                if (old != null && !sameUser(old, user)) onUserChanged.accept(name);
+            });
+            users.keySet().removeIf(name -> {
+                boolean gone = !fresh.containsKey(name);
+                if (gone) onUserChanged.accept(name);
+                return gone;
+            });
+
+            lastModified = modified;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+    }
+
+    private Map<String, UserDetails> parse() throws IOException {
+        Map<String, UserDetails> result = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.split(":", 3);   // username : hash : roles
+                result.put(parts[0], User.withUsername(parts[0])
+                        .password(parts[1])            // ✅ already hashed → no BCrypt here
+                        .roles(parts[2].split(","))
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    private static boolean sameUser(UserDetails a, UserDetails b) {
+        return a.getPassword().equals(b.getPassword())
+                && a.getAuthorities().equals(b.getAuthorities())
+                && a.isEnabled() == b.isEnabled();
+    }
+}
+```
+
+### 🔍 Why this is fast
+
+| Step                    | Before (`InMemoryUserDetailsManager`) | After (`FileUserDetailsService`)   |
+| ----------------------- | ------------------------------------- | ---------------------------------- |
+| Startup                 | N × BCrypt `encode()`                 | nothing                            |
+| First login             | 1 × BCrypt `matches()`                | read file once + 1 × `matches()`   |
+| Later logins            | 1 × BCrypt `matches()`                | map lookup + 1 × `matches()`       |
+| Add / change a user     | edit code + restart                   | edit file → picked up in ≤ 10 s    |
+
+> `ConcurrentHashMap.get()` takes no lock, so thousands of parallel logins never block each other.
+> Only the reload (rare) is `synchronized`.
+
+---
+
+## 🛡️ 4. Updated `SecurityConfig.java`
+
+```java
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.nio.file.Path;
+
+@Configuration
+@EnableScheduling   // ← needed for the @Scheduled hot reload
+public class SecurityConfig {
+
+    @Bean
+    public FileUserDetailsService userDetailsService(
+            @Value("${security.users.file:config/users.txt}") Path file) {
+        return new FileUserDetailsService(file);
+    }
+
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        return http
+                .csrf().disable()
+                .authorizeHttpRequests(auth -> auth
+                    .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                    .requestMatchers("/api/user/**").hasAnyRole("USER", "ADMIN")
+                    .anyRequest().authenticated()
+                )
+                .httpBasic()
+                .and().build();
+    }
+
+    @Bean
+    public BCryptPasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+}
+```
+
+```properties
+security.users.file=config/users.txt
+security.users.reload-interval-ms=10000
+```
+
+### 🔗 Using it with the credential cache (`7_Basic Auth Credential Cache`)
+
+Evict cached logins when a user changes in the file:
+
+```java
+users.setOnUserChanged(cache::evict);
+```
+
+---
+
+## 🗃️ Option B: Users in a Table
+
+Already done in `6_JWT_Auth` → `CustomUserDetailsService` + `UserRepository`.
+That is lazy by nature (one indexed `findByUsername` per login) — just make sure
+passwords are stored **hashed** (`/auth/register` does this) and add an index:
+
+```java
+@Entity
+@Table(indexes = @Index(columnList = "username", unique = true))
+public class User { ... }
+```
+
+---
+
+## ✅ Your Task
+
+1. Put 5,000 users in `plain-users.txt`, run `HashUsers`, delete the plain file.
+2. Start the app → startup time should be the same as with 0 users.
+3. Log in as any user → works on the first request.
+4. Change a role in `users.txt`, wait 10 s → new role is active without restart.
@@ -0,0 +1,456 @@
+Person API — Binary Formats (Smile / CBOR / Protobuf) + Compression
+
+The `PersonController` from `4_Spring Boot REST API — Full CRUD` only speaks JSON.
+JSON is easy to read, but for a big `GET /api/persons`:
+
+* 🐢 Text encoding (numbers → digits, escaping strings) costs CPU
+* 📦 Field names are repeated for **every** person → lots of bytes on the wire
+
+We keep JSON as the default and let the client **ask** for something smaller with `Accept`.
+
+---
+
+## 🎯 What We'll Build
+
+| `Accept` header            | Format   | How                                    |
+| -------------------------- | -------- | -------------------------------------- |
+| `application/json`         | JSON     | default Jackson (unchanged)            |
+| `application/x-jackson-smile` | Smile | Jackson binary JSON                    |
+| `application/cbor`         | CBOR     | Jackson, RFC 8949                      |
+| `application/x-protobuf`   | Protobuf | `.proto` schema + custom converter     |
+
+Plus:
+
+* ✅ gzip (built-in Tomcat) and zstd (small filter) compression above a size threshold
+* ✅ JMH benchmark: bytes on the wire + serialization CPU per format
+
+> The controller code does **not** change. Spring picks the converter from the `Accept` header. 🎉
+
+---
+
+## 📦 1. Dependencies (`pom.xml`)
+
+```xml
+<!-- Smile + CBOR (versions managed by Spring Boot) -->
+<dependency>
+    <groupId>com.fasterxml.jackson.dataformat</groupId>
+    <artifactId>jackson-dataformat-smile</artifactId>
+</dependency>
+<dependency>
+    <groupId>com.fasterxml.jackson.dataformat</groupId>
+    <artifactId>jackson-dataformat-cbor</artifactId>
+</dependency>
+
+<!-- Protobuf -->
+<dependency>
+    <groupId>com.google.protobuf</groupId>
+    <artifactId>protobuf-java</artifactId>
+    <version>3.25.3</version>
+</dependency>
+
+<!-- zstd -->
+<dependency>
+    <groupId>com.github.luben</groupId>
+    <artifactId>zstd-jni</artifactId>
+    <version>1.5.6-3</version>
+</dependency>
+
+<!-- Benchmark (test only) -->
+<dependency>
+    <groupId>org.openjdk.jmh</groupId>
+    <artifactId>jmh-core</artifactId>
+    <version>1.37</version>
+    <scope>test</scope>
+</dependency>
+<dependency>
+    <groupId>org.openjdk.jmh</groupId>
+    <artifactId>jmh-generator-annprocess</artifactId>
+    <version>1.37</version>
+    <scope>test</scope>
+</dependency>
+```
+
+Generate Java classes from `.proto` files:
+
+```xml
+<build>
+    <extensions>
+        <extension>
+            <groupId>kr.motd.maven</groupId>
+            <artifactId>os-maven-plugin</artifactId>
+            <version>1.7.1</version>
+        </extension>
+    </extensions>
+    <plugins>
+        <plugin>
+            <groupId>org.xolstice.maven.plugins</groupId>
+            <artifactId>protobuf-maven-plugin</artifactId>
+            <version>0.6.1</version>
+            <configuration>
+                <protocArtifact>com.google.protobuf:protoc:3.25.3:exe:${os.detected.classifier}</protocArtifact>
+            </configuration>
+            <executions>
+                <execution>
+                    <goals><goal>compile</goal></goals>
+                </execution>
+            </executions>
+        </plugin>
+    </plugins>
+</build>
+```
+
+---
+
+## 📜 2. `src/main/proto/person.proto`
+
+```proto
+syntax = "proto3";
+
+package demo;
+
+option java_package = "com.example.demo.proto";
+option java_outer_classname = "PersonProto";
+
+message Person {
+    int64 id = 1;
+    string name = 2;
+    int32 age = 3;
+}
+
+message PersonList {
+    repeated Person persons = 1;
+}
+```
+
+> Field **numbers** go on the wire, not field names → that's why Protobuf is so small.
+
+---
+
+## 🔄 3. `PersonProtobufHttpMessageConverter.java`
+
+Spring's built-in `ProtobufHttpMessageConverter` only handles generated `Message` classes.
+Our controller returns the JPA `Person`, so we map it ourselves.
+
+```java
+package com.example.demo.config;
+
+import com.example.demo.model.Person;
+import com.example.demo.proto.PersonProto;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+public class PersonProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public PersonProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Person.class == clazz;
+    }
+
+    // ✅ Person or List<Person> only — everything else falls through to Jackson
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return isPersonPayload(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type == Person.class && canRead(mediaType);
+    }
+
+    private static boolean isPersonPayload(Type type) {
+        if (type == Person.class) return true;
+        return type instanceof ParameterizedType p
+                && p.getRawType() == List.class
+                && p.getActualTypeArguments()[0] == Person.class;
+    }
+
+    @Override
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage out) throws IOException {
+        if (body instanceof Person person) {
+            toProto(person).writeTo(out.getBody());
+        } else {
+            PersonProto.PersonList.Builder list = PersonProto.PersonList.newBuilder();
+            for (Object p : (List<?>) body) {
+                list.addPersons(toProto((Person) p));
+            }
+            list.build().writeTo(out.getBody());
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage in) throws IOException {
+        PersonProto.Person proto = PersonProto.Person.parseFrom(in.getBody());
+        Person person = new Person();
+        person.setName(proto.getName());
+        person.setAge(proto.getAge());
+        return person;
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage in) throws IOException {
+        return readInternal(Person.class, in);
+    }
+
+    static PersonProto.Person toProto(Person p) {
+        PersonProto.Person.Builder b = PersonProto.Person.newBuilder().setAge(p.getAge());
+        if (p.getId() != null) b.setId(p.getId());
+        if (p.getName() != null) b.setName(p.getName());   // proto3 strings can't be null
+        return b.build();
+    }
+}
+```
+
+---
+
+## ⚙️ 4. `WebConfig.java` — register the converters
+
+```java
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Replace the auto-detected Smile/CBOR converters with ones built like Boot's JSON mapper
+        converters.removeIf(c -> c instanceof MappingJackson2SmileHttpMessageConverter
+                || c instanceof MappingJackson2CborHttpMessageConverter);
+
+        // ⚠️ Append at the END: JSON must stay first so Accept: */* still gets JSON
+        converters.add(new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build()));
+        converters.add(new PersonProtobufHttpMessageConverter());
+    }
+}
+```
+
+> With `Accept: */*` Spring takes the **first** converter that can write the object → JSON.
+> With `Accept: application/cbor` the JSON converter says "no", so the CBOR one answers. ✅
+
+---
+
+## 🗜️ 5. Compression
+
+### gzip — built into Tomcat (`application.properties`)
+
+```properties
+server.compression.enabled=true
+server.compression.min-response-size=2KB
+server.compression.mime-types=application/json,application/x-jackson-smile,application/cbor,application/x-protobuf
+```
+
+Small responses (< 2 KB) are sent as-is — compressing them costs more CPU than it saves bytes.
+
+### zstd — `ZstdCompressionFilter.java`
+
+Tomcat doesn't do zstd, so a small filter handles clients that send `Accept-Encoding: zstd`.
+
+```java
+package com.example.demo.config;
+
+import com.github.luben.zstd.Zstd;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+public class ZstdCompressionFilter extends OncePerRequestFilter {
+
+    private final int minSize;
+    private final int level;
+
+    public ZstdCompressionFilter(int minSize, int level) {
+        this.minSize = minSize;
+        this.level = level;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accept == null || !accept.contains("zstd");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (body.length < minSize || response.getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            wrapper.copyBodyToResponse();       // too small (or already encoded) → send as-is
+            return;
+        }
+
+        byte[] compressed = Zstd.compress(body, level);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "zstd");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(compressed.length);
+        response.getOutputStream().write(compressed);
+    }
+}
+```
+
+Register it only for the Person API (add to `WebConfig`):
+
+```java
+@Bean
+public FilterRegistrationBean<ZstdCompressionFilter> zstdFilter(
+        @Value("${app.compression.zstd.min-size:2048}") int minSize) {
+    FilterRegistrationBean<ZstdCompressionFilter> bean =
+            new FilterRegistrationBean<>(new ZstdCompressionFilter(minSize, 3));
+    bean.addUrlPatterns("/api/persons", "/api/persons/*");
+    return bean;
+}
+```
+
+> Tomcat sees `Content-Encoding: zstd` already set and skips its own gzip → never double-compressed.
+
+---
+
+## 📊 6. Benchmark — `PersonFormatBenchmark.java` (`src/test/java`)
+
+```java
+package com.example.demo.bench;
+
+import com.example.demo.model.Person;
+import com.example.demo.proto.PersonProto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.github.luben.zstd.Zstd;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonFormatBenchmark {
+
+    @Param({"10", "1000"})
+    int size;
+
+    List<Person> people;
+    final ObjectMapper json = new ObjectMapper();
+    final ObjectMapper smile = new SmileMapper();
+    final ObjectMapper cbor = new CBORMapper();
+
+    @Setup
+    public void setup() throws IOException {
+        people = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Person p = new Person();
+            p.setId((long) i);
+            p.setName("Person number " + i);
+            p.setAge(18 + i % 60);
+            people.add(p);
+        }
+        printSizes();
+    }
+
+    @Benchmark public byte[] json()     throws IOException { return json.writeValueAsBytes(people); }
+    @Benchmark public byte[] smile()    throws IOException { return smile.writeValueAsBytes(people); }
+    @Benchmark public byte[] cbor()     throws IOException { return cbor.writeValueAsBytes(people); }
+    @Benchmark public byte[] protobuf() { return protobufBytes(); }
+
+    private byte[] protobufBytes() {
+        PersonProto.PersonList.Builder list = PersonProto.PersonList.newBuilder();
+        for (Person p : people) {
+            list.addPersons(PersonProto.Person.newBuilder()
+                    .setId(p.getId()).setName(p.getName()).setAge(p.getAge()));
+        }
+        return list.build().toByteArray();
+    }
+
+    // 📦 Bytes on the wire: raw / gzip / zstd for every format
+    private void printSizes() throws IOException {
+        System.out.printf("%n%-9s %8s %8s %8s   (size=%d)%n", "format", "raw", "gzip", "zstd", size);
+        row("json", json.writeValueAsBytes(people));
+        row("smile", smile.writeValueAsBytes(people));
+        row("cbor", cbor.writeValueAsBytes(people));
+        row("protobuf", protobufBytes());
+    }
+
+    private static void row(String name, byte[] raw) throws IOException {
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(raw);
+        }
+        System.out.printf("%-9s %8d %8d %8d%n", name, raw.length, gz.size(), Zstd.compress(raw, 3).length);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PersonFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
+```
+
+Run:
+
+```bash
+./mvnw test-compile exec:java -Dexec.classpathScope=test \
+    -Dexec.mainClass=com.example.demo.bench.PersonFormatBenchmark
+```
+
+You get two tables: the **size** table (printed in `@Setup`) and JMH's **µs/op** table (CPU per format).
+
+---
+
+## 🧪 7. Test with curl
+
+```bash
+curl -u user:1234 http://localhost:8080/api/persons                                      # JSON
+curl -u user:1234 -H "Accept: application/x-jackson-smile" http://localhost:8080/api/persons -o p.sml
+curl -u user:1234 -H "Accept: application/cbor"            http://localhost:8080/api/persons -o p.cbor
+curl -u user:1234 -H "Accept: application/x-protobuf"      http://localhost:8080/api/persons -o p.pb
+curl -u user:1234 -H "Accept-Encoding: gzip" -sI http://localhost:8080/api/persons       # Content-Encoding: gzip
+curl -u user:1234 -H "Accept-Encoding: zstd" -sI http://localhost:8080/api/persons       # Content-Encoding: zstd
+```
+
+---
+
+## ✅ Your Task
+
+1. Insert 1,000 persons, then compare `ls -l p.*` for each format.
+2. Run the benchmark and write down raw / gzip / zstd bytes and µs/op for each format.
+3. Check that a single small `GET /api/persons/1` is **not** compressed (below 2 KB).